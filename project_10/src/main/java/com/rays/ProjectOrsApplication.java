@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -15,12 +16,14 @@ import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import com.rays.common.FrontCtl;
+import com.rays.common.PermissionInterceptor;
 
 /**
  * Dipanshi Mukati
  *
  */
 @SpringBootApplication
+@EnableScheduling
 public class ProjectOrsApplication extends SpringBootServletInitializer {
 //	jo application ko servlet base deployment ke liye ready karta h
 
@@ -30,6 +33,9 @@ public class ProjectOrsApplication extends SpringBootServletInitializer {
 	@Autowired
 	FrontCtl frontCtl;
 
+	@Autowired
+	PermissionInterceptor permissionInterceptor;
+
 	public static void main(String[] args) {
 		SpringApplication.run(ProjectOrsApplication.class, args);
 
@@ -63,6 +69,13 @@ public class ProjectOrsApplication extends SpringBootServletInitializer {
 			/**
 			 * Add Interceptorst
 			 */
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				// public LoginCtl handlers only, operations it inherits from BaseCtl are checked
+				registry.addInterceptor(permissionInterceptor).addPathPatterns("/**").excludePathPatterns("/Auth/login",
+						"/Auth/login/**", "/Auth/refresh", "/Auth/fp/**", "/Auth/signUp", "/Auth/profilePic/**",
+						"/Auth/menu");
+			}
 
 			/*
 			 * @Override public void addInterceptors(InterceptorRegistry registry) {
@@ -1,19 +1,26 @@
 package com.rays.common;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
-import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -21,7 +28,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import com.rays.dto.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rays.service.RolePermissionRegistry;
 
 /**
  * Base controller class containing common REST APIs (get, search, save,
@@ -45,33 +53,25 @@ public abstract class BaseCtl<F extends BaseForm, T extends BaseDTO, S extends B
 	@Autowired
 	protected S baseService;
 
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RolePermissionRegistry rolePermissionRegistry;
+
 	@Value("${page.size}")
 	private int pageSize = 0;
 
 	/**
-	 * Context of logged-in user.
+	 * Context of logged-in user. It is a request scoped proxy, each request
+	 * sees its own context (see UserContextConfig). It can be used only on the
+	 * request thread, async handlers take a UserContext parameter instead.
 	 */
-	protected UserContext userContext = null;
-
-	/**
-	 * Set user context from session.
-	 * 
-	 * @param session
-	 */
-	@ModelAttribute
-	public void setUserContext(HttpSession session) {
-		userContext = (UserContext) session.getAttribute("userContext");
-		if (userContext == null) {
-			UserDTO dto = new UserDTO();
-			dto.setLoginId("root@sunilos.com");
-			dto.setFirstName("demo firstName");
-			dto.setLastName("demo lastName");
-			dto.setOrgId(0L);
-			dto.setRoleId(1L);
-			dto.setOrgName("root");
-			userContext = new UserContext(dto);
-		}
-	}
+	@Autowired
+	protected UserContext userContext;
 
 	/**
 	 * Default GET mapping.
@@ -136,12 +136,16 @@ public abstract class BaseCtl<F extends BaseForm, T extends BaseDTO, S extends B
 			@RequestBody F form) {
 		ORSResponse res = new ORSResponse(true);
 		try {
+			List<Long> idList = new ArrayList<Long>(ids.length);
 			for (String id : ids) {
-				baseService.delete(Long.parseLong(id), userContext);
+				idList.add(Long.parseLong(id));
 			}
+			baseService.deleteAll(idList, userContext);
 			T dto = (T) form.getDto();
-			List<T> list = baseService.search(dto, Integer.parseInt(pageNo), pageSize, userContext);
-			res.addData(list);
+			PageResult<T> page = baseService.searchPage(dto, Integer.parseInt(pageNo), pageSize, false, userContext);
+			res.addData(page.getList());
+			res.addResult("nextList", page.isHasNext() ? 1 : 0);
+			res.addResult("hasNext", page.isHasNext());
 			res.setSuccess(true);
 			res.addMessage("Records Deleted Successfully");
 		} catch (Exception e) {
@@ -178,26 +182,109 @@ public abstract class BaseCtl<F extends BaseForm, T extends BaseDTO, S extends B
 	}
 
 	/**
-	 * Search with specific page number.
+	 * Search with specific page number. Page, next page flag and optional total
+	 * count are read in one round trip.
 	 * 
 	 * @param form
 	 * @param pageNo
+	 * @param count  true to return totalCount
 	 * @return ORSResponse
 	 */
 	@RequestMapping(value = "/search/{pageNo}", method = { RequestMethod.GET, RequestMethod.POST })
-	public ORSResponse search(@RequestBody F form, @PathVariable int pageNo) {
+	public ORSResponse search(@RequestBody F form, @PathVariable int pageNo,
+			@RequestParam(value = "count", required = false, defaultValue = "false") boolean count) {
 		pageNo = Math.max(pageNo, 0);//req ka data form me hold karta h
 
 		T dto = (T) form.getDto();
 		ORSResponse res = new ORSResponse(true);
-		res.addData(baseService.search(dto, pageNo, pageSize, userContext));
+		PageResult<T> page = baseService.searchPage(dto, pageNo, pageSize, count, userContext);
+		res.addData(page.getList());
 
-		List<T> nextList = baseService.search(dto, pageNo + 1, pageSize, userContext);
-		res.addResult("nextList", nextList.size());
+		res.addResult("nextList", page.isHasNext() ? 1 : 0);
+		res.addResult("hasNext", page.isHasNext());
+		if (page.getTotalCount() != null) {
+			res.addResult("totalCount", page.getTotalCount());
+		}
 
 		return res;
 	}
 
+	/**
+	 * Keyset search, first page.
+	 * 
+	 * @param form
+	 * @return ORSResponse
+	 */
+	@RequestMapping(value = "/search/cursor", method = { RequestMethod.GET, RequestMethod.POST })
+	public ORSResponse searchByCursor(@RequestBody F form) {
+		return searchByCursor(form, null);
+	}
+
+	/**
+	 * Keyset search, page after the given cursor. Cursor of the next page is
+	 * returned as nextCursor.
+	 * 
+	 * @param form
+	 * @param cursor
+	 * @return ORSResponse
+	 */
+	@RequestMapping(value = "/search/cursor/{cursor}", method = { RequestMethod.GET, RequestMethod.POST })
+	public ORSResponse searchByCursor(@RequestBody F form, @PathVariable String cursor) {
+		ORSResponse res = new ORSResponse(true);
+		try {
+			T dto = (T) form.getDto();
+			PageResult<T> page = baseService.searchAfter(dto, cursor, pageSize, userContext);
+			res.addData(page.getList());
+			res.addResult("hasNext", page.isHasNext());
+			res.addResult("nextCursor", page.getNextCursor());
+		} catch (IllegalArgumentException e) {
+			res.setSuccess(false);
+			res.addMessage("Invalid cursor");
+		}
+		return res;
+	}
+
+	/**
+	 * Export all records of search, in order of search. Records are written to
+	 * response as they are read from database.
+	 * 
+	 * @param form
+	 * @param format   csv or ndjson
+	 * @param response
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/export", method = { RequestMethod.GET, RequestMethod.POST })
+	public void export(@RequestBody F form,
+			@RequestParam(value = "format", required = false, defaultValue = ExportWriter.CSV) String format,
+			HttpServletResponse response) throws IOException {
+		if (!ExportWriter.CSV.equals(format) && !ExportWriter.NDJSON.equals(format)) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid export format " + format);
+			return;
+		}
+		String name = getClass().getSimpleName().replace("Ctl", "").toLowerCase();
+		response.setContentType(ExportWriter.getContentType(format));
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + name + "." + format + "\"");
+
+		ExportWriter writer = new ExportWriter(objectMapper,
+				new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8)),
+				format);
+		export(form, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Passes records of export to writer
+	 * 
+	 * @param form
+	 * @param writer
+	 * @return number of records
+	 */
+	protected long export(F form, ExportWriter writer) {
+		T dto = (T) form.getDto();
+		return baseService.export(dto, writer, userContext);
+	}
+
 	/**
 	 * Save or update entity.
 	 * 
@@ -207,6 +294,11 @@ public abstract class BaseCtl<F extends BaseForm, T extends BaseDTO, S extends B
 	 */
 	@PostMapping("/save")
 	public ORSResponse save(@RequestBody @Valid F form, BindingResult bindingResult) {
+		boolean update = form.getId() != null && form.getId() > 0;
+		if (!isAllowed(update ? RolePermissionRegistry.UPDATE : RolePermissionRegistry.WRITE)) {
+			return notAllowed(new ORSResponse(true));
+		}
+
 		ORSResponse res = validate(bindingResult);
 
 		if (!res.isSuccess()) {
@@ -242,6 +334,108 @@ public abstract class BaseCtl<F extends BaseForm, T extends BaseDTO, S extends B
 		return res;
 	}
 
+	/**
+	 * Save or update a list of entities in one transaction. Records are written
+	 * in JDBC batches. Input errors are returned with the index of the form, for
+	 * example "2.name". Unique keys of the whole list are checked before any
+	 * record is written.
+	 * 
+	 * @param forms
+	 * @return ORSResponse, primary keys in order of forms
+	 */
+	@PostMapping("/saveAll")
+	public ORSResponse saveAll(@RequestBody List<F> forms) {
+		ORSResponse res = new ORSResponse(true);
+
+		// New records need WRITE, existing ones UPDATE
+		boolean insert = false;
+		boolean update = false;
+		for (F form : forms) {
+			boolean existing = form.getId() != null && form.getId() > 0;
+			insert |= !existing;
+			update |= existing;
+		}
+		if ((insert && !isAllowed(RolePermissionRegistry.WRITE))
+				|| (update && !isAllowed(RolePermissionRegistry.UPDATE))) {
+			return notAllowed(res);
+		}
+
+		Map<String, String> errors = new HashMap<>();
+		List<T> list = new ArrayList<T>(forms.size());
+		for (int i = 0; i < forms.size(); i++) {
+			for (ConstraintViolation<F> v : validator.validate(forms.get(i))) {
+				errors.put(i + "." + v.getPropertyPath(), v.getMessage());
+			}
+			list.add((T) forms.get(i).getDto());
+		}
+		checkUniqueKeys(list, errors);
+		if (!errors.isEmpty()) {
+			res.setSuccess(false);
+			res.addInputErrors(errors);
+			return res;
+		}
+
+		try {
+			res.addData(baseService.saveAll(list, userContext));
+		} catch (Exception e) {
+			res.setSuccess(false);
+			res.addMessage(e.getMessage());
+		}
+		return res;
+	}
+
+	/**
+	 * Adds an input error for each record whose unique value is used by an
+	 * earlier record of list or by another existing record. Existing records are
+	 * read with one IN query per unique key. Values are compared ignoring case,
+	 * as the database does.
+	 * 
+	 * @param list
+	 * @param errors
+	 */
+	private void checkUniqueKeys(List<T> list, Map<String, String> errors) {
+		Map<String, Map<String, Integer>> keys = new HashMap<>();
+		for (int i = 0; i < list.size(); i++) {
+			T dto = list.get(i);
+			String key = dto.getUniqueKey();
+			String value = dto.getUniqueValue();
+			if (key == null || key.isEmpty() || value == null) {
+				continue;
+			}
+			Map<String, Integer> values = keys.computeIfAbsent(key,
+					k -> new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER));
+			if (values.putIfAbsent(value, i) != null) {
+				errors.put(i + "." + key, dto.getLabel() + " already exist");
+			}
+		}
+
+		keys.forEach((key, values) -> {
+			for (T existDto : baseService.findByUniqueKeys(key, values.keySet(), userContext)) {
+				Integer i = values.get(existDto.getUniqueValue());
+				if (i != null && !existDto.getId().equals(list.get(i).getId())) {
+					errors.put(i + "." + key, list.get(i).getLabel() + " already exist");
+				}
+			}
+		});
+	}
+
+	/**
+	 * True if role of logged-in user has permission. Other operations are
+	 * checked by PermissionInterceptor before they are called.
+	 * 
+	 * @param permission
+	 * @return
+	 */
+	protected boolean isAllowed(int permission) {
+		return rolePermissionRegistry.isAllowed(userContext.getDefaultRoleId(), permission);
+	}
+
+	private ORSResponse notAllowed(ORSResponse res) {
+		res.setSuccess(false);
+		res.addMessage("You are not allowed to perform this operation");
+		return res;
+	}
+
 	/**
 	 * Validate form input errors.
 	 * 
@@ -3,20 +3,37 @@ package com.rays.common;
 import java.sql.Timestamp;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.Cacheable;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
 import com.rays.exception.DuplicateRecordException;
 
 /**
@@ -29,6 +46,69 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 	@PersistenceContext
 	protected EntityManager entityManager;
 
+	/**
+	 * Names of referenced records copied in populate()
+	 */
+	@Autowired
+	protected ReferenceDataCache referenceDataCache;
+
+	/**
+	 * Time to live of cached record counts in milliseconds
+	 */
+	@Value("${page.count.ttl:30000}")
+	private long countTtl = 30000;
+
+	/**
+	 * Maximum number of cached record counts
+	 */
+	@Value("${page.count.size:500}")
+	private int countCacheSize = 500;
+
+	/**
+	 * Record counts of recent searches. Cleared when a record is added, updated
+	 * or deleted through this DAO.
+	 */
+	private LocalCache<String, Long> countCache = null;
+
+	/**
+	 * Number of records written in one JDBC batch by saveAll
+	 */
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+	private int batchSize = 50;
+
+	/**
+	 * JDBC fetch size of scroll(). MySQL streams rows one at a time when it is
+	 * Integer.MIN_VALUE.
+	 */
+	@Value("${export.fetch.size:1000}")
+	private int fetchSize = 1000;
+
+	/**
+	 * Maximum number of cached query templates
+	 */
+	@Value("${query.template.size:200}")
+	private int templateCacheSize = 200;
+
+	/**
+	 * JPQL rendered for each search shape, see SearchShape
+	 */
+	private LocalCache<String, String> templateCache = null;
+
+	@PostConstruct
+	public void initCountCache() {
+		countCache = new LocalCache<String, Long>(countCacheSize, countTtl);
+		templateCache = new LocalCache<String, String>(templateCacheSize, 0);
+	}
+
+	/**
+	 * Cache of JPQL rendered for search shapes
+	 * 
+	 * @return
+	 */
+	public LocalCache<String, String> getTemplateCache() {
+		return templateCache;
+	}
+
 	public void setEntityManager(EntityManager entityManager) {
 		this.entityManager = entityManager;
 		// this.sessionFactory =
@@ -62,7 +142,7 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 			cq.where(condition);
 		}
 
-		TypedQuery<T> query = entityManager.createQuery(cq);
+		TypedQuery<T> query = cacheable(entityManager.createQuery(cq));
 
 		List<T> list = query.getResultList();
 
@@ -76,11 +156,56 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 
 	}
 
+	/**
+	 * Find records whose unique key is one of values, with one IN query per 500
+	 * values
+	 * 
+	 * @param attribute
+	 * @param values
+	 * @return
+	 */
+	public List<T> findByUniqueKeys(String attribute, Collection<?> values, UserContext userContext) {
+		List<T> list = new ArrayList<T>();
+		List<Object> all = new ArrayList<Object>(values);
+		Class<T> dtoClass = getDTOClass();
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+		for (int i = 0; i < all.size(); i += IN_LIST_SIZE) {
+			CriteriaQuery<T> cq = builder.createQuery(dtoClass);
+			Root<T> qRoot = cq.from(dtoClass);
+			Predicate condition = qRoot.get(attribute).in(all.subList(i, Math.min(i + IN_LIST_SIZE, all.size())));
+			if (userContext != null && !isZeroNumber(userContext.getOrgId())) {
+				cq.where(condition, builder.equal(qRoot.get("orgId"), userContext.getOrgId()));
+			} else {
+				cq.where(condition);
+			}
+			list.addAll(entityManager.createQuery(cq).getResultList());
+		}
+		return list;
+	}
+
 	public T findByPK(long pk, UserContext userContext) {
 		T dto = entityManager.find(getDTOClass(), pk);
 		return dto;
 	} 
 
+	public List<T> findByIds(Collection<Long> ids, UserContext userContext) {
+
+		if (ids == null || ids.isEmpty()) {
+			return new ArrayList<T>();
+		}
+
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+		CriteriaQuery<T> cq = builder.createQuery(getDTOClass());
+
+		Root<T> qRoot = cq.from(getDTOClass());
+
+		cq.select(qRoot).where(qRoot.get("id").in(ids));
+
+		return cacheable(entityManager.createQuery(cq)).getResultList();
+	}
+
 	/**
 	 * Build criteria query
 	 * 
@@ -88,40 +213,140 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 	 * @return
 	 */
 	protected TypedQuery<T> createCriteria(T dto, UserContext userContext) {
+		return createCriteria(dto, null, userContext);
+	}
+
+	/**
+	 * Build criteria query that starts after the row identified by cursor.
+	 * 
+	 * Search conditions are first recorded by SearchShape, the JPQL of a shape
+	 * seen before is taken from template cache and only values are bound to
+	 * it. Criteria query is built and rendered only for a new shape. Order of
+	 * the shape is given by getSeekKeys(), getOrderByClause() must follow it.
+	 * 
+	 * @param dto
+	 * @param after
+	 * @param userContext
+	 * @return
+	 */
+	protected TypedQuery<T> createCriteria(T dto, SearchCursor after, UserContext userContext) {
 
-		System.out.println("BaseDao createCriteria run");
+		SearchShape shape = newShape(dto, after);
+		shape.append("order", getSeekKeys(dto));
 
-		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		return createQuery("select" + shape.getShape(), shape, getDTOClass(), builder -> {
 
-		// Create criteria
-		CriteriaQuery<T> cq = builder.createQuery(getDTOClass());
+			// Create criteria
+			CriteriaQuery<T> cq = builder.createQuery(getDTOClass());
 
-		// Columns information
-		Root<T> qRoot = cq.from(getDTOClass());
+			// Columns information
+			Root<T> qRoot = cq.from(getDTOClass());
+
+			// Column of query
+			cq.select(qRoot);
+			cq.where(getSearchClause(dto, after, builder, qRoot));
+
+			List<Order> orderBys = getOrderByClause(dto, builder, qRoot);
+			cq.orderBy(orderBys.toArray(new Order[orderBys.size()]));
+			return cq;
+		});
+	}
+
+	/**
+	 * Records search conditions of dto and cursor
+	 * 
+	 * @param dto
+	 * @param after null if search starts from first row
+	 * @return
+	 */
+	private SearchShape newShape(T dto, SearchCursor after) {
+		SearchShape shape = new SearchShape(getDTOClass(), entityManager.getMetamodel());
+		shape.append("where", getSearchClause(dto, after, shape.getBuilder(), shape.<T>getRoot()));
+		return shape;
+	}
 
-		// Column of query
-		cq.select(qRoot);
+	private Predicate[] getSearchClause(T dto, SearchCursor after, CriteriaBuilder builder, Root<T> qRoot) {
 
 		// Create where conditions
-		List<Predicate> whereClause = getWhereClause(dto, builder, qRoot);
+		List<Predicate> whereClause = createWhereClause(dto, builder, qRoot);
 
-		// Put organization filter
-		if (dto.isGroupFilter()) {
-			whereClause.add(builder.equal(qRoot.get("orgId"), dto.getOrgId()));
+		// Seek past last row of previous page
+		if (after != null) {
+			whereClause.add(getSeekClause(dto, after, builder, qRoot));
 		}
-		System.out.println(" isgroup skipped......Amisha");
-		cq.where(whereClause.toArray(new Predicate[whereClause.size()]));
+		return whereClause.toArray(new Predicate[whereClause.size()]);
+	}
+
+	/**
+	 * Creates query of a recorded search. JPQL rendered by Hibernate is cached
+	 * by key, later searches of same key reuse it and bind only their values.
+	 * 
+	 * @param key        shape of search and what it selects
+	 * @param shape      recorded search
+	 * @param resultType
+	 * @param criteria   builds criteria of search, called only if JPQL is not
+	 *                   cached
+	 * @return
+	 */
+	protected <R> TypedQuery<R> createQuery(String key, SearchShape shape, Class<R> resultType,
+			Function<CriteriaBuilder, CriteriaQuery<R>> criteria) {
 
-		List<Order> orderBys = getOrderByClause(dto, builder, qRoot);
+		List<Object> values = shape.getValues();
+		TypedQuery<R> query = null;
 
-		System.out.println("after getOrder By clause........Amisha");
-		cq.orderBy(orderBys.toArray(new Order[orderBys.size()]));
+		String jpql = templateCache.get(key);
+
+		if (jpql != null) {
+			query = entityManager.createQuery(jpql, resultType);
+		} else {
+			CriteriaTemplateBuilder template = new CriteriaTemplateBuilder(entityManager.getCriteriaBuilder());
+			query = entityManager.createQuery(criteria.apply(template.getBuilder()));
+			values = template.getValues();
+			// Values not bound by template are rendered as implicit parameters
+			if (query instanceof org.hibernate.query.Query && values.equals(shape.getValues())) {
+				jpql = ((org.hibernate.query.Query<?>) query).getQueryString();
+				if (!jpql.contains(":param")) {
+					templateCache.put(key, jpql);
+				}
+			}
+		}
+		for (int i = 0; i < values.size(); i++) {
+			query.setParameter("p" + i, values.get(i));
+		}
+		return cacheable(query);
+	}
 
-		System.out.println("After order by clause.......Amisha ");
-		TypedQuery<T> query = entityManager.createQuery(cq);
-		System.out.println("createCriteria end here---....Amisha");
+	/**
+	 * Results of queries on entities kept in second level cache (@Cacheable)
+	 * are kept in query cache. Hibernate drops them when the table is written.
+	 * 
+	 * @param query
+	 * @return
+	 */
+	protected <Q extends Query> Q cacheable(Q query) {
+		if (getDTOClass().isAnnotationPresent(Cacheable.class)) {
+			query.setHint(QueryHints.CACHEABLE, true);
+		}
 		return query;
+	}
+
+	/**
+	 * Creates search conditions of dto along with organization filter
+	 * 
+	 * @param dto
+	 * @param builder
+	 * @param qRoot
+	 * @return
+	 */
+	protected List<Predicate> createWhereClause(T dto, CriteriaBuilder builder, Root<T> qRoot) {
 
+		List<Predicate> whereClause = getWhereClause(dto, builder, qRoot);
+
+		// Put organization filter
+		if (dto.isGroupFilter()) {
+			whereClause.add(builder.equal(qRoot.get("orgId"), dto.getOrgId()));
+		}
+		return whereClause;
 	}
 
 	/**
@@ -159,6 +384,146 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 		return search(dto, 0, 0, userContext);
 	}
 
+	/**
+	 * Searches a page along with its navigation information in one round trip.
+	 * One row more than page size is fetched to find out if next page exists.
+	 * Total count is calculated only if asked; it is derived from the page when
+	 * this is the last page, otherwise taken from count cache or COUNT query.
+	 * 
+	 * @param dto
+	 * @param pageNo
+	 * @param pageSize
+	 * @param countTotal
+	 * @return
+	 */
+	public PageResult<T> searchPage(T dto, int pageNo, int pageSize, boolean countTotal, UserContext userContext) {
+
+		TypedQuery<T> query = createCriteria(dto, userContext);
+
+		if (pageSize > 0) {
+			query.setFirstResult(pageNo * pageSize);
+			query.setMaxResults(pageSize + 1);
+		}
+
+		List<T> list = query.getResultList();
+
+		PageResult<T> page = new PageResult<T>();
+		page.setPageNo(pageNo);
+		if (pageSize > 0 && list.size() > pageSize) {
+			list = new ArrayList<T>(list.subList(0, pageSize));
+			page.setHasNext(true);
+		}
+		page.setList(list);
+
+		if (countTotal) {
+			if (!page.isHasNext() && (list.size() > 0 || pageNo == 0)) {
+				page.setTotalCount((long) pageNo * pageSize + list.size());
+			} else {
+				page.setTotalCount(count(dto, userContext));
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Counts records matching search conditions. Counts are cached for a short
+	 * time by query shape and values so repeated list screens do not run COUNT
+	 * again.
+	 * 
+	 * @param dto
+	 * @return
+	 */
+	public long count(T dto, UserContext userContext) {
+
+		SearchShape shape = newShape(dto, null);
+
+		// Same shape and values give same count
+		String key = shape.getShape() + shape.getValues();
+
+		Long total = countCache.get(key);
+		if (total != null) {
+			return total;
+		}
+
+		total = createQuery("count" + shape.getShape(), shape, Long.class, builder -> {
+			CriteriaQuery<Long> cq = builder.createQuery(Long.class);
+			Root<T> qRoot = cq.from(getDTOClass());
+			cq.select(builder.count(qRoot));
+			cq.where(getSearchClause(dto, null, builder, qRoot));
+			return cq;
+		}).getSingleResult();
+		countCache.put(key, total);
+		return total;
+	}
+
+	/**
+	 * Keyset search. Reads the page that follows given cursor in order of
+	 * dto.orderBY() and id, so cost of a page does not depend on its depth.
+	 * 
+	 * @param dto
+	 * @param cursor   null for first page
+	 * @param pageSize
+	 * @return
+	 */
+	public PageResult<T> searchAfter(T dto, String cursor, int pageSize, UserContext userContext) {
+
+		SearchCursor after = null;
+		if (!isEmptyString(cursor)) {
+			after = SearchCursor.decode(cursor);
+		}
+
+		TypedQuery<T> query = createCriteria(dto, after, userContext);
+
+		// One extra row tells if next page exists
+		if (pageSize > 0) {
+			query.setMaxResults(pageSize + 1);
+		}
+
+		List<T> list = query.getResultList();
+
+		PageResult<T> page = new PageResult<T>();
+		if (pageSize > 0 && list.size() > pageSize) {
+			list = new ArrayList<T>(list.subList(0, pageSize));
+			page.setHasNext(true);
+			page.setNextCursor(getCursor(dto, list.get(pageSize - 1)).encode());
+		}
+		page.setList(list);
+		return page;
+	}
+
+	/**
+	 * Reads all records of search in order with a forward only cursor. Each
+	 * record is passed to action and detached, so memory use does not grow
+	 * with number of records. Must be called in a transaction.
+	 * 
+	 * @param dto
+	 * @param action
+	 * @param userContext
+	 * @return number of records
+	 */
+	public long scroll(T dto, Consumer<? super T> action, UserContext userContext) {
+
+		org.hibernate.query.Query<T> query = createCriteria(dto, userContext).unwrap(org.hibernate.query.Query.class);
+		query.setCacheable(false);
+		query.setCacheMode(CacheMode.IGNORE);
+		query.setReadOnly(true);
+		query.setFetchSize(fetchSize);
+
+		long count = 0;
+		ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				T row = (T) results.get(0);
+				action.accept(row);
+				entityManager.detach(row);
+				count++;
+			}
+		} finally {
+			results.close();
+		}
+		return count;
+	}
+
 	/**
 	 * Run HQL query
 	 * 
@@ -197,6 +562,7 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 		System.out.println(dto);
 		System.out.println("before calling persist method in base dao......Amisha");
 		entityManager.persist(dto);
+		countCache.clear();
 
 		return dto.getId();
 
@@ -211,6 +577,68 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 
 	}
 
+	/**
+	 * Populate redundant values into a batch of dtos. Child classes preload
+	 * referenced records of the batch into reference data cache so that
+	 * populate() does not query each of them.
+	 * 
+	 * @param list
+	 * @param userContext
+	 */
+	protected void populateAll(List<T> list, UserContext userContext) {
+		for (T dto : list) {
+			populate(dto, userContext);
+		}
+	}
+
+	/**
+	 * Adds new and updates existing records. Records are written in batches of
+	 * hibernate.jdbc.batch_size; persistence context is flushed and cleared
+	 * after each batch so memory does not grow with the list.
+	 */
+	public List<Long> saveAll(List<T> list, UserContext userContext) {
+
+		List<Long> ids = new ArrayList<Long>(list.size());
+
+		for (int from = 0; from < list.size(); from += batchSize) {
+
+			List<T> batch = list.subList(from, Math.min(from + batchSize, list.size()));
+
+			// Load existing records of batch in one query, merge finds them in
+			// persistence context
+			List<Long> updateIds = new ArrayList<Long>();
+			for (T dto : batch) {
+				if (dto.getId() != null && dto.getId() > 0) {
+					updateIds.add(dto.getId());
+				}
+			}
+			findByIds(updateIds, userContext);
+
+			populateAll(batch, userContext);
+
+			Timestamp now = new Timestamp(new Date().getTime());
+			for (T dto : batch) {
+				dto.setModifiedBy(userContext.getLoginId());
+				dto.setModifiedDatetime(now);
+				if (dto.getId() != null && dto.getId() > 0) {
+					entityManager.merge(dto);
+				} else {
+					dto.setCreatedBy(userContext.getLoginId());
+					dto.setCreatedDatetime(now);
+					dto.setOrgId(userContext.getOrgId());
+					dto.setOrgName(userContext.getOrgName());
+					entityManager.persist(dto);
+				}
+				ids.add(dto.getId());
+			}
+
+			entityManager.flush();
+			entityManager.clear();
+		}
+		countCache.clear();
+		return ids;
+	}
+
 	/**
 	 * Update a record
 	 */
@@ -222,6 +650,7 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 		populate(dto, userContext);
 
 		entityManager.merge(dto);
+		countCache.clear();
 
 	}
 
@@ -248,6 +677,57 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 	 */
 	public void delete(T dto, UserContext userContext) {
 		entityManager.remove(dto);
+		countCache.clear();
+	}
+
+	/**
+	 * Maximum number of ids in IN list of a bulk statement
+	 */
+	protected static final int IN_LIST_SIZE = 500;
+
+	/**
+	 * Deletes records with one DELETE ... WHERE ID IN (..) statement per 500
+	 * ids. Records of other organizations are not deleted. Persistence context
+	 * is not synchronized, deleted records are not removed from it.
+	 */
+	public int deleteAll(Collection<Long> ids, UserContext userContext) {
+
+		List<Long> list = new ArrayList<Long>(new LinkedHashSet<Long>(ids));
+		int count = 0;
+
+		for (int from = 0; from < list.size(); from += IN_LIST_SIZE) {
+
+			List<Long> chunk = list.subList(from, Math.min(from + IN_LIST_SIZE, list.size()));
+
+			deleteDependents(chunk, userContext);
+
+			CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+			CriteriaDelete<T> cd = builder.createCriteriaDelete(getDTOClass());
+
+			Root<T> qRoot = cd.from(getDTOClass());
+
+			if (userContext != null && !isZeroNumber(userContext.getOrgId())) {
+				cd.where(qRoot.get("id").in(chunk), builder.equal(qRoot.get("orgId"), userContext.getOrgId()));
+			} else {
+				cd.where(qRoot.get("id").in(chunk));
+			}
+
+			count += entityManager.createQuery(cd).executeUpdate();
+		}
+		countCache.clear();
+		return count;
+	}
+
+	/**
+	 * Deletes records that depend on records about to be deleted by deleteAll.
+	 * Overridden by child classes, use bulk statements here too.
+	 * 
+	 * @param ids         at most IN_LIST_SIZE ids
+	 * @param userContext
+	 */
+	protected void deleteDependents(List<Long> ids, UserContext userContext) {
+
 	}
 
 	/**
@@ -314,7 +794,7 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 
 		// Apply Order by clause
 		System.out.println("baseDAO in getOrderByClause.......Amisha ");
-		LinkedHashMap<String, String> map = dto.orderBY();
+		LinkedHashMap<String, String> map = getSeekKeys(dto);
 
 		List<Order> orderBys = new ArrayList<Order>();
 
@@ -330,4 +810,93 @@ public abstract class BaseDAOImpl<T extends BaseDTO> implements BaseDAOInt<T> {
 		return orderBys;
 	}
 
+	/**
+	 * Order by attributes of dto followed by id as tie-breaker. Same keys are
+	 * used to sort and to seek, so every row has a unique position.
+	 * 
+	 * @param dto
+	 * @return
+	 */
+	protected LinkedHashMap<String, String> getSeekKeys(T dto) {
+		LinkedHashMap<String, String> keys = new LinkedHashMap<String, String>();
+		if (dto.orderBY() != null) {
+			keys.putAll(dto.orderBY());
+		}
+		if (!keys.containsKey("id")) {
+			keys.put("id", "asc");
+		}
+		return keys;
+	}
+
+	/**
+	 * Get cursor of a row
+	 * 
+	 * @param dto
+	 * @param row
+	 * @return
+	 */
+	protected SearchCursor getCursor(T dto, T row) {
+		DirectFieldAccessor accessor = new DirectFieldAccessor(row);
+		LinkedHashMap<String, String> keys = getSeekKeys(dto);
+		Object[] values = new Object[keys.size()];
+		int i = 0;
+		for (String key : keys.keySet()) {
+			values[i++] = accessor.getPropertyValue(key);
+		}
+		return SearchCursor.of(values);
+	}
+
+	/**
+	 * Creates condition (k1, k2, .., id) > (v1, v2, .., id) of keyset search.
+	 * Row value comparison is expanded into OR/AND terms so that mixed asc/desc
+	 * keys and NULL values are handled. MySQL sorts NULL first in ascending and
+	 * last in descending order.
+	 * 
+	 * @param dto
+	 * @param after
+	 * @param builder
+	 * @param qRoot
+	 * @return
+	 */
+	protected Predicate getSeekClause(T dto, SearchCursor after, CriteriaBuilder builder, Root<T> qRoot) {
+
+		List<Map.Entry<String, String>> keys = new ArrayList<Map.Entry<String, String>>(
+				getSeekKeys(dto).entrySet());
+
+		if (after.size() != keys.size()) {
+			throw new IllegalArgumentException("Cursor does not match search order");
+		}
+
+		Predicate seek = null;
+
+		for (int i = keys.size() - 1; i >= 0; i--) {
+			boolean asc = "asc".equals(keys.get(i).getValue());
+			Path<Comparable> path = qRoot.get(keys.get(i).getKey());
+			Comparable value = (Comparable) after.getValue(i, path.getJavaType());
+
+			List<Predicate> or = new ArrayList<Predicate>();
+			if (value == null) {
+				if (asc) {
+					or.add(builder.isNotNull(path));
+				}
+				if (seek != null) {
+					or.add(builder.and(builder.isNull(path), seek));
+				}
+			} else {
+				if (asc) {
+					or.add(builder.greaterThan(path, value));
+				} else {
+					or.add(builder.lessThan(path, value));
+					or.add(builder.isNull(path));
+				}
+				if (seek != null) {
+					or.add(builder.and(builder.equal(path, value), seek));
+				}
+			}
+			seek = or.isEmpty() ? builder.disjunction() : builder.or(or.toArray(new Predicate[or.size()]));
+		}
+
+		return seek;
+	}
+
 }
@@ -1,6 +1,8 @@
 package com.rays.common;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.persistence.EntityManager;
 
@@ -34,6 +36,31 @@ public interface BaseDAOInt<T extends BaseDTO> {
 	 */
 	public void delete(T dto, UserContext userContext);
 
+	/**
+	 * Adds new and updates existing records using JDBC batches
+	 * 
+	 * @param list
+	 * @param userContext
+	 * @return primary keys in order of list
+	 */
+	public List<Long> saveAll(List<T> list, UserContext userContext);
+
+	/**
+	 * Deletes records of given primary keys with bulk DELETE statements
+	 * 
+	 * @param ids
+	 * @param userContext
+	 * @return number of deleted records
+	 */
+	public int deleteAll(Collection<Long> ids, UserContext userContext);
+
+	/**
+	 * Get DTO Class object
+	 * 
+	 * @return
+	 */
+	public Class<T> getDTOClass();
+
 	/**
 	 * Finds Role by Primary Key.
 	 * 
@@ -42,6 +69,15 @@ public interface BaseDAOInt<T extends BaseDTO> {
 	 */
 	public T findByPK(long pk, UserContext userContext);
 
+	/**
+	 * Finds records of given primary keys in one query
+	 * 
+	 * @param ids
+	 * @param userContext
+	 * @return
+	 */
+	public List<T> findByIds(Collection<Long> ids, UserContext userContext);
+
 	/**
 	 * Find record by unique key
 	 * 
@@ -52,6 +88,15 @@ public interface BaseDAOInt<T extends BaseDTO> {
 	 */
 	public T findByUniqueKey(String attribute, Object val, UserContext userContext);
 
+	/**
+	 * Find records whose unique key is one of values
+	 * 
+	 * @param attribute
+	 * @param values
+	 * @return
+	 */
+	public List<T> findByUniqueKeys(String attribute, Collection<?> values, UserContext userContext);
+
 	/**
 	 * Searches Role with pagination.
 	 * 
@@ -70,6 +115,37 @@ public interface BaseDAOInt<T extends BaseDTO> {
 	 */
 	public List search(T dto, UserContext userContext);
 
+	/**
+	 * Searches a page along with next page flag and optional total count.
+	 * 
+	 * @param dto
+	 * @param pageNo
+	 * @param pageSize
+	 * @param countTotal
+	 * @return
+	 */
+	public PageResult<T> searchPage(T dto, int pageNo, int pageSize, boolean countTotal, UserContext userContext);
+
+	/**
+	 * Keyset search, reads the page after given cursor.
+	 * 
+	 * @param dto
+	 * @param cursor
+	 * @param pageSize
+	 * @return
+	 */
+	public PageResult<T> searchAfter(T dto, String cursor, int pageSize, UserContext userContext);
+
+	/**
+	 * Passes all records of search to action one by one, without holding them
+	 * in memory.
+	 * 
+	 * @param dto
+	 * @param action
+	 * @return number of records
+	 */
+	public long scroll(T dto, Consumer<? super T> action, UserContext userContext);
+
 	public List runHQL(String hql, UserContext userContext);
 	
 	public void setEntityManager(EntityManager entityManager);
@@ -11,6 +11,7 @@ import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
 
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -22,11 +23,18 @@ import org.springframework.data.annotation.LastModifiedDate;
 public abstract class BaseDTO implements Serializable, DropdownList, Comparable<BaseDTO> {
 
 	/**
-	 * Non Business primary key
+	 * Non Business primary key. Keys are allocated 50 at a time from
+	 * ST_ID_SEQUENCE, one row per table, so inserts can be sent in JDBC batches.
 	 */
 	@Id
 	@GeneratedValue(generator = "ncsPk")
-	@GenericGenerator(name = "ncsPk", strategy = "native")
+	@GenericGenerator(name = "ncsPk", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+			@Parameter(name = "table_name", value = IdSequenceInitializer.TABLE),
+			@Parameter(name = "segment_column_name", value = IdSequenceInitializer.SEGMENT_COLUMN),
+			@Parameter(name = "value_column_name", value = IdSequenceInitializer.VALUE_COLUMN),
+			@Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+			@Parameter(name = "increment_size", value = "50"),
+			@Parameter(name = "optimizer", value = "pooled-lo") })
 	@Column(name = "ID", unique = true, nullable = false)
 	protected Long id;
 	/**
@@ -1,6 +1,8 @@
 package com.rays.common;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +26,9 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 	@Autowired
 	protected D baseDao;
 
+	@Autowired
+	protected ReferenceDataCache referenceDataCache;
+
 	@Transactional(readOnly = true)
 	public T findById(long id, UserContext userContext) {
 		T dto = baseDao.findByPK(id, userContext);
@@ -37,6 +42,11 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 		return dto;
 	}
 
+	@Transactional(readOnly = true)
+	public List<T> findByUniqueKeys(String att, Collection<String> values, UserContext userContext) {
+		return baseDao.findByUniqueKeys(att, values, userContext);
+	}
+
 	@Transactional(readOnly = true)
 	public List<T> search(T dto, int pageNo, int pageSize, UserContext userContext) {
 		System.out.println("Search run in Baseservice......Amisha");
@@ -57,6 +67,21 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 		
 	}
 
+	@Transactional(readOnly = true)
+	public PageResult<T> searchPage(T dto, int pageNo, int pageSize, boolean countTotal, UserContext userContext) {
+		return baseDao.searchPage(dto, pageNo, pageSize, countTotal, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public PageResult<T> searchAfter(T dto, String cursor, int pageSize, UserContext userContext) {
+		return baseDao.searchAfter(dto, cursor, pageSize, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public long export(T dto, Consumer<? super T> action, UserContext userContext) {
+		return baseDao.scroll(dto, action, userContext);
+	}
+
 	@Transactional(readOnly = false)
 	public long add(T dto, UserContext userContext) throws DuplicateRecordException {
 		// check duplicate
@@ -68,6 +93,7 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 	@Transactional(propagation = Propagation.REQUIRED)
 	public void update(T dto, UserContext userContext) throws DuplicateRecordException {
 		baseDao.update(dto, userContext);
+		referenceDataCache.evict(dto.getClass(), dto.getId());
 	}
 
 	@Transactional(propagation = Propagation.REQUIRED)
@@ -81,6 +107,15 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 		return id;
 	}
 
+	@Transactional(propagation = Propagation.REQUIRED)
+	public List<Long> saveAll(List<T> list, UserContext userContext) throws DuplicateRecordException {
+		List<Long> ids = baseDao.saveAll(list, userContext);
+		for (T dto : list) {
+			referenceDataCache.evict(dto.getClass(), dto.getId());
+		}
+		return ids;
+	}
+
 	@Transactional(propagation = Propagation.REQUIRED)
 	public T delete(long id, UserContext userContext) {
 		log.debug("Base Service delete Start");
@@ -89,8 +124,18 @@ public abstract class BaseServiceImpl<T extends BaseDTO, D extends BaseDAOInt<T>
 			throw new DatabaseException("Record not found");
 		}
 		baseDao.delete(dto, userContext);
+		referenceDataCache.evict(dto.getClass(), dto.getId());
 		log.debug("Base Service delete End");
 		return dto;
 	}
 
+	@Transactional(propagation = Propagation.REQUIRED)
+	public int deleteAll(Collection<Long> ids, UserContext userContext) {
+		int count = baseDao.deleteAll(ids, userContext);
+		for (Long id : ids) {
+			referenceDataCache.evict(baseDao.getDTOClass(), id);
+		}
+		return count;
+	}
+
 }
@@ -1,6 +1,8 @@
 package com.rays.common;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.rays.exception.DuplicateRecordException;
 
@@ -34,6 +36,16 @@ public interface BaseServiceInt<T extends BaseDTO> {
 	 */
 	public long save(T dto, UserContext userContext);
 
+	/**
+	 * Adds new and updates existing records in one transaction. Records are
+	 * written in JDBC batches, use it to load large lists.
+	 * 
+	 * @param list
+	 * @param userContext
+	 * @return primary keys in order of list
+	 */
+	public List<Long> saveAll(List<T> list, UserContext userContext);
+
 	/**
 	 * Deletes a Role
 	 * 
@@ -41,6 +53,16 @@ public interface BaseServiceInt<T extends BaseDTO> {
 	 */
 	public T delete(long id, UserContext userContext);
 
+	/**
+	 * Deletes records of given primary keys in one transaction with bulk DELETE
+	 * statements.
+	 * 
+	 * @param ids
+	 * @param userContext
+	 * @return number of deleted records
+	 */
+	public int deleteAll(Collection<Long> ids, UserContext userContext);
+
 	/**
 	 * Finds a Role by ID
 	 * 
@@ -51,6 +73,15 @@ public interface BaseServiceInt<T extends BaseDTO> {
 
 
 	public T findByUniqueKey(String att, String val, UserContext userContext);
+
+	/**
+	 * Finds records whose unique key is one of values
+	 * 
+	 * @param att
+	 * @param values
+	 * @return
+	 */
+	public List<T> findByUniqueKeys(String att, Collection<String> values, UserContext userContext);
 	
 	/**
 	 * Searches Roles with pagination.
@@ -70,6 +101,37 @@ public interface BaseServiceInt<T extends BaseDTO> {
 	 */
 	public List search(T dto, UserContext userContext);
 
+	/**
+	 * Searches a page along with next page flag and optional total count.
+	 * 
+	 * @param dto
+	 * @param pageNo
+	 * @param pageSize
+	 * @param countTotal
+	 * @return
+	 */
+	public PageResult<T> searchPage(T dto, int pageNo, int pageSize, boolean countTotal, UserContext userContext);
+
+	/**
+	 * Keyset search, reads the page after given cursor.
+	 * 
+	 * @param dto
+	 * @param cursor
+	 * @param pageSize
+	 * @return
+	 */
+	public PageResult<T> searchAfter(T dto, String cursor, int pageSize, UserContext userContext);
+
+	/**
+	 * Passes all records of search to action one by one, without holding them
+	 * in memory.
+	 * 
+	 * @param dto
+	 * @param action
+	 * @return number of records
+	 */
+	public long export(T dto, Consumer<? super T> action, UserContext userContext);
+
 
 
 }
\ No newline at end of file
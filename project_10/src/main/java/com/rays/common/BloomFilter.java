@@ -0,0 +1,76 @@
+package com.rays.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of strings that answers "may contain" in constant memory. False
+ * positives are possible, false negatives are not. Entries can not be
+ * removed, build a new filter to drop them.
+ *
+ * Safe for concurrent use.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+
+	private final int size;
+
+	private final int hashes;
+
+	/**
+	 * @param size   number of bits
+	 * @param hashes number of bits set per entry
+	 */
+	public BloomFilter(int size, int hashes) {
+		this.size = Math.max(size, 64);
+		this.hashes = Math.max(hashes, 1);
+		this.bits = new AtomicLongArray((this.size + 63) / 64);
+	}
+
+	public void add(String value) {
+		long hash = hash(value);
+		for (int i = 0; i < hashes; i++) {
+			int bit = index(hash, i);
+			int word = bit >>> 6;
+			long mask = 1L << (bit & 63);
+			long current;
+			do {
+				current = bits.get(word);
+			} while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+		}
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		for (int i = 0; i < hashes; i++) {
+			int bit = index(hash, i);
+			if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Bit of i-th hash, derived from two halves of a 64 bit hash
+	 */
+	private int index(long hash, int i) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		int combined = h1 + i * h2;
+		return (combined & Integer.MAX_VALUE) % size;
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of characters
+	 */
+	private long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+}
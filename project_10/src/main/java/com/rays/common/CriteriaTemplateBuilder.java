@@ -0,0 +1,82 @@
+package com.rays.common;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+
+/**
+ * Builds a criteria query whose values given to comparison methods (equal,
+ * like, greaterThan etc.) are replaced by named parameters p0, p1 .. so the
+ * query rendered once can be reused with values of any later search of same
+ * SearchShape. Use getBuilder() in place of the entity manager builder.
+ */
+public class CriteriaTemplateBuilder implements InvocationHandler {
+
+	private final CriteriaBuilder builder;
+
+	private final CriteriaBuilder proxy;
+
+	private final List<Object> values = new ArrayList<Object>();
+
+	public CriteriaTemplateBuilder(CriteriaBuilder builder) {
+		this.builder = builder;
+		this.proxy = (CriteriaBuilder) Proxy.newProxyInstance(CriteriaBuilder.class.getClassLoader(),
+				new Class<?>[] { CriteriaBuilder.class }, this);
+	}
+
+	/**
+	 * Parameter replacing builder
+	 *
+	 * @return
+	 */
+	public CriteriaBuilder getBuilder() {
+		return proxy;
+	}
+
+	/**
+	 * Values to be bound to parameters p0, p1 ..
+	 *
+	 * @return
+	 */
+	public List<Object> getValues() {
+		return values;
+	}
+
+	public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+		Method call = method;
+		Object[] callArgs = args;
+
+		if (args != null && SearchShape.VALUE_METHODS.contains(method.getName())) {
+			Class<?>[] types = method.getParameterTypes();
+			for (int i = 0; i < args.length; i++) {
+				Object arg = args[i];
+				if (arg != null && !(arg instanceof Expression) && !types[i].isPrimitive()) {
+					if (callArgs == args) {
+						callArgs = args.clone();
+						types = types.clone();
+					}
+					callArgs[i] = builder.parameter(arg.getClass(), "p" + values.size());
+					types[i] = Expression.class;
+					values.add(arg);
+				}
+			}
+			if (callArgs != args) {
+				call = CriteriaBuilder.class.getMethod(method.getName(), types);
+			}
+		}
+
+		try {
+			return call.invoke(builder, callArgs);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.rays.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes records as they are read, one line per record. Records are converted
+ * with the same ObjectMapper as REST responses, so exported fields and formats
+ * match search results.
+ *
+ * csv : header line with fields of first record, followed by values
+ *
+ * ndjson : one JSON object per line
+ */
+public class ExportWriter implements Consumer<Object> {
+
+	public static final String CSV = "csv";
+
+	public static final String NDJSON = "ndjson";
+
+	private final ObjectMapper mapper;
+
+	private final Writer writer;
+
+	private final String format;
+
+	/**
+	 * CSV columns, taken from first record
+	 */
+	private List<String> columns = null;
+
+	public ExportWriter(ObjectMapper mapper, Writer writer, String format) {
+		if (!CSV.equals(format) && !NDJSON.equals(format)) {
+			throw new IllegalArgumentException("Invalid export format " + format);
+		}
+		this.mapper = mapper;
+		this.writer = writer;
+		this.format = format;
+	}
+
+	/**
+	 * Content type of format
+	 *
+	 * @param format
+	 * @return
+	 */
+	public static String getContentType(String format) {
+		return NDJSON.equals(format) ? "application/x-ndjson" : "text/csv";
+	}
+
+	public void accept(Object record) {
+		try {
+			if (NDJSON.equals(format)) {
+				writer.write(mapper.writeValueAsString(record));
+			} else {
+				writeCsv(mapper.valueToTree(record));
+			}
+			writer.write('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeCsv(JsonNode node) throws IOException {
+		if (columns == null) {
+			columns = new ArrayList<String>();
+			Iterator<String> names = node.fieldNames();
+			while (names.hasNext()) {
+				columns.add(names.next());
+			}
+			writeCsvLine(columns);
+			writer.write('\n');
+		}
+		List<String> values = new ArrayList<String>(columns.size());
+		for (String column : columns) {
+			JsonNode value = node.get(column);
+			if (value == null || value.isNull()) {
+				values.add("");
+			} else if (value.isValueNode()) {
+				values.add(value.asText());
+			} else {
+				values.add(value.toString());
+			}
+		}
+		writeCsvLine(values);
+	}
+
+	private void writeCsvLine(List<String> values) throws IOException {
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			String value = values.get(i);
+			if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+					|| value.indexOf('\r') >= 0) {
+				value = '"' + value.replace("\"", "\"\"") + '"';
+			}
+			writer.write(value);
+		}
+	}
+
+	/**
+	 * Writes buffered lines
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+}
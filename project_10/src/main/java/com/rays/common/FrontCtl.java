@@ -2,7 +2,6 @@ package com.rays.common;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -38,7 +37,6 @@ public class FrontCtl extends HandlerInterceptorAdapter {
 		
 		
 		
-		 HttpSession session = request.getSession(); 
 		String path = request.getServletPath();
 		
 		System.out.println(" Front Ctl Called " + path);
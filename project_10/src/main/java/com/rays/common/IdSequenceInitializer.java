@@ -0,0 +1,136 @@
+package com.rays.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategy;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.hibernate.boot.registry.selector.spi.StrategySelector;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Primary keys are allocated from ST_ID_SEQUENCE (see BaseDTO). Tables created
+ * earlier got their keys from AUTO_INCREMENT, so before the application serves
+ * requests the next value of each table is moved past its highest ID.
+ */
+@Component
+public class IdSequenceInitializer {
+
+	public static final String TABLE = "ST_ID_SEQUENCE";
+
+	public static final String SEGMENT_COLUMN = "SEQUENCE_NAME";
+
+	public static final String VALUE_COLUMN = "NEXT_VAL";
+
+	private static Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void init() {
+		SessionFactoryImplementor factory = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactoryImplementor.class);
+		new TransactionTemplate(transactionManager).execute(status -> {
+			for (AbstractEntityPersister persister : getPersisters(factory)) {
+				init(factory, persister);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Sets next value of a table to its highest ID + 1 if it is behind. Names
+	 * are the physical names Hibernate uses, table names are case sensitive on
+	 * some MySQL servers.
+	 * 
+	 * @param factory
+	 * @param persister
+	 */
+	private void init(SessionFactoryImplementor factory, AbstractEntityPersister persister) {
+
+		TableGenerator generator = (TableGenerator) persister.getIdentifierGenerator();
+		String table = getPhysicalName(factory, generator.getTableName());
+		String segment = generator.getSegmentValue();
+
+		Number max = (Number) entityManager.createNativeQuery(
+				"select max(" + persister.getIdentifierColumnNames()[0] + ") from " + persister.getTableName())
+				.getSingleResult();
+		long next = (max == null) ? 1 : max.longValue() + 1;
+
+		List<?> rows = entityManager.createNativeQuery("select " + generator.getValueColumnName() + " from " + table
+				+ " where " + generator.getSegmentColumnName() + " = ?1").setParameter(1, segment).getResultList();
+
+		if (rows.isEmpty()) {
+			entityManager.createNativeQuery("insert into " + table + " (" + generator.getSegmentColumnName() + ", "
+					+ generator.getValueColumnName() + ") values (?1, ?2)").setParameter(1, segment)
+					.setParameter(2, next).executeUpdate();
+		} else if (((Number) rows.get(0)).longValue() < next) {
+			entityManager.createNativeQuery("update " + table + " set " + generator.getValueColumnName() + " = ?1 where "
+					+ generator.getSegmentColumnName() + " = ?2").setParameter(1, next).setParameter(2, segment)
+					.executeUpdate();
+		} else {
+			return;
+		}
+		log.info("ID sequence of " + segment + " starts at " + next);
+	}
+
+	/**
+	 * Entities that get keys from ST_ID_SEQUENCE
+	 * 
+	 * @param factory
+	 * @return
+	 */
+	private List<AbstractEntityPersister> getPersisters(SessionFactoryImplementor factory) {
+		Map<String, AbstractEntityPersister> persisters = new TreeMap<String, AbstractEntityPersister>();
+		for (EntityPersister persister : factory.getMetamodel().entityPersisters().values()) {
+			if (persister instanceof AbstractEntityPersister && persister.isMutable()
+					&& persister.getIdentifierGenerator() instanceof TableGenerator
+					&& TABLE.equals(((TableGenerator) persister.getIdentifierGenerator()).getTableName())) {
+				AbstractEntityPersister entity = (AbstractEntityPersister) persister;
+				persisters.put(entity.getTableName(), entity);
+			}
+		}
+		return new ArrayList<AbstractEntityPersister>(persisters.values());
+	}
+
+	/**
+	 * Name of a table as created by the configured physical naming strategy
+	 * 
+	 * @param factory
+	 * @param name
+	 * @return
+	 */
+	private String getPhysicalName(SessionFactoryImplementor factory, String name) {
+		PhysicalNamingStrategy strategy = factory.getServiceRegistry().getService(StrategySelector.class)
+				.resolveDefaultableStrategy(PhysicalNamingStrategy.class,
+						factory.getProperties().get(AvailableSettings.PHYSICAL_NAMING_STRATEGY),
+						PhysicalNamingStrategyStandardImpl.INSTANCE);
+		JdbcEnvironment environment = factory.getJdbcServices().getJdbcEnvironment();
+		return strategy.toPhysicalTableName(Identifier.toIdentifier(name), environment)
+				.render(environment.getDialect());
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.rays.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Small in-process cache bounded by number of entries. Least recently used
+ * entry is removed when cache is full and entries expire after given time to
+ * live.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LocalCache<K, V> {
+
+	private final int maxSize;
+
+	private final long ttl;
+
+	private final LinkedHashMap<K, Entry<V>> map;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize maximum number of entries
+	 * @param ttl     time to live in milliseconds, 0 means no expiry
+	 */
+	public LocalCache(final int maxSize, long ttl) {
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, LocalCache.Entry<V>> eldest) {
+				return size() > LocalCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns cached value, null if absent or expired
+	 *
+	 * @param key
+	 * @return
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = map.get(key);
+		if (entry != null && entry.expiresAt > 0 && entry.expiresAt < System.currentTimeMillis()) {
+			map.remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.value;
+	}
+
+	public synchronized void put(K key, V value) {
+		put(key, value, ttl > 0 ? System.currentTimeMillis() + ttl : 0);
+	}
+
+	/**
+	 * Puts value that expires at given time
+	 *
+	 * @param key
+	 * @param value
+	 * @param expiresAt epoch milliseconds, 0 means no expiry
+	 */
+	public synchronized void put(K key, V value, long expiresAt) {
+		map.put(key, new Entry<V>(value, expiresAt));
+	}
+
+	public synchronized void remove(K key) {
+		map.remove(key);
+	}
+
+	/**
+	 * Removes entries whose key matches the filter
+	 *
+	 * @param filter
+	 */
+	public synchronized void removeIf(Predicate<K> filter) {
+		map.keySet().removeIf(filter);
+	}
+
+	public synchronized void clear() {
+		map.clear();
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.rays.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contains one page of search result along with its navigation information
+ *
+ * @param <T>
+ */
+public class PageResult<T> {
+
+	/**
+	 * Records of current page
+	 */
+	private List<T> list = new ArrayList<T>();
+
+	/**
+	 * True if there are more records after this page
+	 */
+	private boolean hasNext = false;
+
+	/**
+	 * Page number, 0 is first page index
+	 */
+	private int pageNo = 0;
+
+	/**
+	 * Total number of matching records, null if it is not counted. It may be
+	 * served from cache and lag behind recent changes.
+	 */
+	private Long totalCount = null;
+
+	/**
+	 * Cursor of next page in keyset search, null if there is no next page
+	 */
+	private String nextCursor = null;
+
+	public List<T> getList() {
+		return list;
+	}
+
+	public void setList(List<T> list) {
+		this.list = list;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	public int getPageNo() {
+		return pageNo;
+	}
+
+	public void setPageNo(int pageNo) {
+		this.pageNo = pageNo;
+	}
+
+	public Long getTotalCount() {
+		return totalCount;
+	}
+
+	public void setTotalCount(Long totalCount) {
+		this.totalCount = totalCount;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+}
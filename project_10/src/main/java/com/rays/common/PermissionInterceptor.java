@@ -0,0 +1,110 @@
+package com.rays.common;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rays.service.RolePermissionRegistry;
+
+/**
+ * Checks permission of role of logged-in user before BaseCtl operations.
+ *
+ * get, search and export need READ, delete and deleteMany need DELETE. save
+ * and saveAll are checked by BaseCtl, only the body tells if a record is new
+ * and needs WRITE or exists and needs UPDATE. Other handler methods are not
+ * checked.
+ */
+@Component
+public class PermissionInterceptor extends HandlerInterceptorAdapter {
+
+	private static final Map<String, Integer> OPERATIONS = new HashMap<String, Integer>();
+
+	static {
+		OPERATIONS.put("get", RolePermissionRegistry.READ);
+		OPERATIONS.put("search", RolePermissionRegistry.READ);
+		OPERATIONS.put("searchByCursor", RolePermissionRegistry.READ);
+		OPERATIONS.put("export", RolePermissionRegistry.READ);
+		OPERATIONS.put("delete", RolePermissionRegistry.DELETE);
+		OPERATIONS.put("deleteMany", RolePermissionRegistry.DELETE);
+	}
+
+	@Autowired
+	private RolePermissionRegistry rolePermissionRegistry;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Permission needed by handler method, 0 if it is not a BaseCtl operation
+	 */
+	private final Map<Method, Integer> required = new ConcurrentHashMap<Method, Integer>();
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		if (!(handler instanceof HandlerMethod)) {
+			return true;
+		}
+		int permission = required.computeIfAbsent(((HandlerMethod) handler).getMethod(),
+				PermissionInterceptor::getPermission);
+		if (permission == 0) {
+			return true;
+		}
+
+		Long roleId = UserContextArgumentResolver.getUserContext(request).getDefaultRoleId();
+		if (rolePermissionRegistry.isAllowed(roleId, permission)) {
+			return true;
+		}
+
+		response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+		response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+		objectMapper.writeValue(response.getOutputStream(),
+				new ORSResponse(false, "You are not allowed to perform this operation"));
+		return false;
+	}
+
+	/**
+	 * Permission of BaseCtl operation implemented by method
+	 *
+	 * @param method
+	 * @return
+	 */
+	private static int getPermission(Method method) {
+		Integer permission = OPERATIONS.get(method.getName());
+		if (permission == null || !BaseCtl.class.isAssignableFrom(method.getDeclaringClass())) {
+			return 0;
+		}
+		for (Method base : BaseCtl.class.getDeclaredMethods()) {
+			if (base.getName().equals(method.getName()) && isOverriddenBy(base, method)) {
+				return permission;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean isOverriddenBy(Method base, Method method) {
+		Class<?>[] baseTypes = base.getParameterTypes();
+		Class<?>[] types = method.getParameterTypes();
+		if (baseTypes.length != types.length) {
+			return false;
+		}
+		for (int i = 0; i < types.length; i++) {
+			if (!baseTypes[i].isAssignableFrom(types[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.rays.common;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches display values (names) of reference records like College, Course,
+ * Subject, Role and Student, and ids they hold like college of a student. DAOs
+ * copy these into dependent records in populate(), this cache turns those
+ * lookups into memory reads.
+ *
+ * Entries are kept per organization and removed when the record is updated or
+ * deleted through BaseServiceImpl.
+ */
+@Component
+public class ReferenceDataCache {
+
+	private final LocalCache<String, String> cache;
+
+	public ReferenceDataCache(@Value("${reference.cache.size:2000}") int size,
+			@Value("${reference.cache.ttl:600000}") long ttl) {
+		cache = new LocalCache<String, String>(size, ttl);
+	}
+
+	/**
+	 * Returns display value of a record, null if record does not exist
+	 *
+	 * @param type        DTO class of record
+	 * @param id          primary key of record
+	 * @param dao         DAO to read record on cache miss
+	 * @param userContext
+	 * @return
+	 */
+	public <T extends BaseDTO> String getValue(Class<T> type, Long id, BaseDAOInt<T> dao, UserContext userContext) {
+		if (id == null || id <= 0) {
+			return null;
+		}
+		Long orgId = (userContext == null) ? null : userContext.getOrgId();
+		String key = type.getName() + ":" + orgId + ":" + id;
+
+		String value = cache.get(key);
+		if (value == null) {
+			T dto = dao.findByPK(id, userContext);
+			if (dto != null) {
+				value = dto.getValue();
+				cache.put(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns an id held by a record, for example college of a student. Display
+	 * value of the record is cached along with it.
+	 *
+	 * @param type        DTO class of record
+	 * @param id          primary key of record
+	 * @param attribute   name of id attribute
+	 * @param getter      reads id attribute
+	 * @param dao         DAO to read record on cache miss
+	 * @param userContext
+	 * @return null if record does not exist or does not hold an id
+	 */
+	public <T extends BaseDTO> Long getId(Class<T> type, Long id, String attribute, Function<T, Long> getter,
+			BaseDAOInt<T> dao, UserContext userContext) {
+		if (id == null || id <= 0) {
+			return null;
+		}
+		Long orgId = (userContext == null) ? null : userContext.getOrgId();
+		String key = type.getName() + ":" + orgId + ":" + id;
+
+		String value = cache.get(key + ":" + attribute);
+		if (value == null) {
+			T dto = dao.findByPK(id, userContext);
+			if (dto == null) {
+				return null;
+			}
+			Long ref = getter.apply(dto);
+			value = (ref == null) ? "" : ref.toString();
+			cache.put(key + ":" + attribute, value);
+			cache.put(key, dto.getValue());
+		}
+		return value.isEmpty() ? null : Long.valueOf(value);
+	}
+
+	/**
+	 * Reads records of given ids that are not cached, with one query
+	 *
+	 * @param type        DTO class of records
+	 * @param ids         primary keys, null and zero are ignored
+	 * @param dao         DAO to read records
+	 * @param userContext
+	 */
+	public <T extends BaseDTO> void preload(Class<T> type, Collection<Long> ids, BaseDAOInt<T> dao,
+			UserContext userContext) {
+		Long orgId = (userContext == null) ? null : userContext.getOrgId();
+		String prefix = type.getName() + ":" + orgId + ":";
+
+		Set<Long> missing = new LinkedHashSet<Long>();
+		for (Long id : ids) {
+			if (id != null && id > 0 && cache.get(prefix + id) == null) {
+				missing.add(id);
+			}
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		for (T dto : dao.findByIds(missing, userContext)) {
+			cache.put(prefix + dto.getId(), dto.getValue());
+		}
+	}
+
+	/**
+	 * Removes cached values of a record. Values are removed again after commit so
+	 * a lookup made by another request during the transaction is not kept.
+	 *
+	 * @param type
+	 * @param id
+	 */
+	public void evict(Class<?> type, Long id) {
+		if (id == null) {
+			return;
+		}
+		final String prefix = type.getName() + ":";
+		final String suffix = ":" + id;
+		// Display value and ids held by record
+		final Predicate<String> keys = key -> key.startsWith(prefix)
+				&& (key.endsWith(suffix) || key.contains(suffix + ":"));
+		cache.removeIf(keys);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					cache.removeIf(keys);
+				}
+			});
+		}
+	}
+
+	public LocalCache<String, String> getCache() {
+		return cache;
+	}
+
+}
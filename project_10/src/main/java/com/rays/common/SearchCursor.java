@@ -0,0 +1,132 @@
+package com.rays.common;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque position of a keyset (seek) search. Contains values of the order by
+ * attributes of the last row of a page followed by its primary key. Values are
+ * kept as text and converted back to the attribute type when the next page is
+ * queried.
+ */
+public class SearchCursor {
+
+	private static final String NULL = "~";
+
+	private static final String SEPARATOR = "&";
+
+	private final String[] values;
+
+	private SearchCursor(String[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Creates cursor from attribute values
+	 *
+	 * @param values
+	 * @return
+	 */
+	public static SearchCursor of(Object[] values) {
+		String[] vals = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			Object val = values[i];
+			if (val == null) {
+				vals[i] = null;
+			} else if (val instanceof Date) {
+				vals[i] = String.valueOf(((Date) val).getTime());
+			} else {
+				vals[i] = String.valueOf(val);
+			}
+		}
+		return new SearchCursor(vals);
+	}
+
+	/**
+	 * Parses a cursor received from client
+	 *
+	 * @param cursor
+	 * @return
+	 * @throws IllegalArgumentException if cursor is malformed
+	 */
+	public static SearchCursor decode(String cursor) {
+		String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		String[] parts = text.split(SEPARATOR, -1);
+		String[] vals = new String[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++) {
+				vals[i] = NULL.equals(parts[i]) ? null : URLDecoder.decode(parts[i], "UTF-8");
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return new SearchCursor(vals);
+	}
+
+	/**
+	 * Encodes cursor into URL safe text
+	 *
+	 * @return
+	 */
+	public String encode() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					sb.append(SEPARATOR);
+				}
+				sb.append(values[i] == null ? NULL : URLEncoder.encode(values[i], "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Number of values in cursor
+	 *
+	 * @return
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * Returns value at given index converted into attribute type
+	 *
+	 * @param index
+	 * @param type
+	 * @return
+	 */
+	public Object getValue(int index, Class<?> type) {
+		String val = values[index];
+		if (val == null) {
+			return null;
+		}
+		if (type == String.class) {
+			return val;
+		} else if (type == Long.class || type == long.class) {
+			return Long.valueOf(val);
+		} else if (type == Integer.class || type == int.class) {
+			return Integer.valueOf(val);
+		} else if (type == Double.class || type == double.class) {
+			return Double.valueOf(val);
+		} else if (type == Boolean.class || type == boolean.class) {
+			return Boolean.valueOf(val);
+		} else if (Timestamp.class.isAssignableFrom(type)) {
+			return new Timestamp(Long.parseLong(val));
+		} else if (java.sql.Date.class.isAssignableFrom(type)) {
+			return new java.sql.Date(Long.parseLong(val));
+		} else if (Date.class.isAssignableFrom(type)) {
+			return new Date(Long.parseLong(val));
+		}
+		throw new IllegalArgumentException("Unsupported cursor attribute type " + type.getName());
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.rays.common;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+
+/**
+ * Describes a search without building it. Where conditions are created with
+ * the recording builder and root of this class, which only write down the
+ * calls made and collect the values given to comparisons. No criteria query is
+ * built, so the query of a shape seen before is reused at the cost of a few
+ * method calls.
+ *
+ * Values are collected in the order CriteriaTemplateBuilder binds them as
+ * parameters p0, p1 .. when the same conditions are built for real.
+ */
+public class SearchShape {
+
+	/**
+	 * Builder methods whose non expression arguments are values
+	 */
+	static final Set<String> VALUE_METHODS = new HashSet<String>(
+			Arrays.asList("equal", "notEqual", "like", "notLike", "greaterThan", "greaterThanOrEqualTo", "lessThan",
+					"lessThanOrEqualTo", "between", "gt", "ge", "lt", "le"));
+
+	private static final Map<Class<?>, Constructor<?>> PROXIES = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
+	private final StringBuilder shape = new StringBuilder();
+
+	private final List<Object> values = new ArrayList<Object>();
+
+	private final Metamodel metamodel;
+
+	private final CriteriaBuilder builder;
+
+	private final Root<?> root;
+
+	private int count = 0;
+
+	public SearchShape(Class<?> entity, Metamodel metamodel) {
+		this.metamodel = metamodel;
+		this.builder = (CriteriaBuilder) newNode(CriteriaBuilder.class, "cb", null);
+		this.root = (Root<?>) newNode(Root.class, "", entity);
+	}
+
+	/**
+	 * Recording builder
+	 *
+	 * @return
+	 */
+	public CriteriaBuilder getBuilder() {
+		return builder;
+	}
+
+	/**
+	 * Recording root of entity
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Root<T> getRoot() {
+		return (Root<T>) root;
+	}
+
+	/**
+	 * Appends a marker and what it refers to, for example the list of where
+	 * conditions
+	 *
+	 * @param marker
+	 * @param arg
+	 */
+	public void append(String marker, Object arg) {
+		shape.append(marker).append('(').append(describe(arg)).append(')');
+	}
+
+	/**
+	 * Shape of the search recorded so far
+	 *
+	 * @return
+	 */
+	public String getShape() {
+		return shape.toString();
+	}
+
+	/**
+	 * Values of comparisons in order of calls
+	 *
+	 * @return
+	 */
+	public List<Object> getValues() {
+		return values;
+	}
+
+	private Object newNode(Class<?> type, String name, Class<?> javaType) {
+		try {
+			Constructor<?> constructor = PROXIES.computeIfAbsent(type, t -> {
+				try {
+					return Proxy.getProxyClass(t.getClassLoader(), t).getConstructor(InvocationHandler.class);
+				} catch (NoSuchMethodException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			return constructor.newInstance(new Node(name, javaType));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String describe(Object arg) {
+		if (arg == null) {
+			return "null";
+		}
+		if (Proxy.isProxyClass(arg.getClass()) && Proxy.getInvocationHandler(arg) instanceof Node) {
+			return ((Node) Proxy.getInvocationHandler(arg)).name;
+		}
+		if (arg instanceof Object[]) {
+			StringBuilder sb = new StringBuilder("[");
+			for (Object o : (Object[]) arg) {
+				sb.append(describe(o)).append(',');
+			}
+			return sb.append(']').toString();
+		}
+		if (arg instanceof Class) {
+			return ((Class<?>) arg).getName();
+		}
+		if (arg instanceof Attribute) {
+			return ((Attribute<?, ?>) arg).getName();
+		}
+		return String.valueOf(arg);
+	}
+
+	/**
+	 * A recorded expression, path or the builder itself
+	 */
+	private class Node implements InvocationHandler {
+
+		private final String name;
+
+		private final Class<?> javaType;
+
+		private Node(String name, Class<?> javaType) {
+			this.name = name;
+			this.javaType = javaType;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String method_ = method.getName();
+			if (method.getDeclaringClass() == Object.class) {
+				if (method_.equals("equals")) {
+					return proxy == args[0];
+				}
+				return method_.equals("hashCode") ? System.identityHashCode(proxy) : name;
+			}
+			if (method_.equals("getJavaType")) {
+				return javaType;
+			}
+			if (method_.equals("get") && args.length == 1 && javaType != null) {
+				// path of an attribute
+				String attribute = describe(args[0]);
+				return newNode(method.getReturnType(), name.isEmpty() ? attribute : name + "." + attribute,
+						getAttributeType(attribute));
+			}
+
+			shape.append(name).append('.').append(method_).append('(');
+			if (args != null) {
+				boolean value = VALUE_METHODS.contains(method_);
+				Class<?>[] types = method.getParameterTypes();
+				for (int i = 0; i < args.length; i++) {
+					Object arg = args[i];
+					if (value && arg != null && !(arg instanceof Expression) && !types[i].isPrimitive()) {
+						values.add(arg);
+						shape.append('?').append(arg.getClass().getName());
+					} else {
+						shape.append(describe(arg));
+					}
+					shape.append(',');
+				}
+			}
+			String result = "#" + count++;
+			shape.append(")").append(result).append(';');
+
+			Class<?> type = method.getReturnType();
+			if (type.isInterface()) {
+				return newNode(type, result, null);
+			}
+			if (type == boolean.class) {
+				return false;
+			}
+			return type.isPrimitive() && type != void.class ? 0 : null;
+		}
+
+		private Class<?> getAttributeType(String attribute) {
+			if (!name.isEmpty()) {
+				return Object.class;
+			}
+			ManagedType<?> type = metamodel.managedType(javaType);
+			return type.getAttribute(attribute).getJavaType();
+		}
+	}
+
+}
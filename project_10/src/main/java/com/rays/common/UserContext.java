@@ -10,6 +10,11 @@ import com.rays.dto.UserDTO;
  */
 public class UserContext {
 
+	/**
+	 * Request attribute holding context of authenticated request
+	 */
+	public static final String REQUEST_ATTRIBUTE = "userContext";
+
 	private Long userId = 0L;
 	private String loginId = "root";
 	private String name = null;
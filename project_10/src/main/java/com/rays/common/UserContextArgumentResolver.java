@@ -0,0 +1,52 @@
+package com.rays.common;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.rays.dto.UserDTO;
+
+/**
+ * Resolves UserContext arguments of handler methods to context of current
+ * request. Resolved context is a plain object, it can be handed to other
+ * threads.
+ */
+public class UserContextArgumentResolver implements HandlerMethodArgumentResolver {
+
+	public boolean supportsParameter(MethodParameter parameter) {
+		return UserContext.class.equals(parameter.getParameterType());
+	}
+
+	public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+		return getUserContext(webRequest.getNativeRequest(HttpServletRequest.class));
+	}
+
+	/**
+	 * Context set by JWTRequestFilter, default context if request is not
+	 * authenticated. Default context has no role, so it is allowed nothing.
+	 * 
+	 * @param request
+	 * @return
+	 */
+	public static UserContext getUserContext(HttpServletRequest request) {
+		UserContext userContext = (UserContext) request.getAttribute(UserContext.REQUEST_ATTRIBUTE);
+		if (userContext == null) {
+			UserDTO dto = new UserDTO();
+			dto.setLoginId("root@sunilos.com");
+			dto.setFirstName("demo firstName");
+			dto.setLastName("demo lastName");
+			dto.setOrgId(0L);
+			dto.setRoleId(null);
+			dto.setOrgName("root");
+			userContext = new UserContext(dto);
+			request.setAttribute(UserContext.REQUEST_ATTRIBUTE, userContext);
+		}
+		return userContext;
+	}
+
+}
@@ -51,9 +51,43 @@ public class AttachmentBaseDTO extends BaseDTO {
 	@Column(name = "USER_ID")
 	protected Long userId = null;
 	
+	/**
+	 * Contains size of file in bytes
+	 */
+	@Column(name = "DOC_SIZE")
+	protected Long size = null;
+
 	@Column(name = "USER_EMAIL")
 	protected String email = null;
 
+	/**
+	 * Contains key of file data in AttachmentStore, SHA-256 of the data
+	 */
+	@Column(name = "DOC_HASH", length = 64)
+	protected String hash = null;
+
+	/**
+	 * Contains compression of stored data, null if it is stored as is
+	 */
+	@Column(name = "DOC_CODEC", length = 10)
+	protected String codec = null;
+
+	public String getCodec() {
+		return codec;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
 	public String getEmail() {
 		return email;
 	}
@@ -62,6 +96,14 @@ public class AttachmentBaseDTO extends BaseDTO {
 		this.email = email;
 	}
 
+	public Long getSize() {
+		return size;
+	}
+
+	public void setSize(Long size) {
+		this.size = size;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -0,0 +1,366 @@
+package com.rays.common.attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps information and data of recently sent attachments, so frequently
+ * requested small files like profile pictures are sent without reading the
+ * database or the store.
+ *
+ * Cache is bounded by bytes, not entries. Data of files up to
+ * attachment.cache.item.max.bytes is kept on heap, within
+ * attachment.cache.heap.bytes; larger files keep their information only.
+ * When attachment.cache.offheap.bytes is set, data removed from heap is moved
+ * to direct buffers outside heap instead of being dropped.
+ *
+ * Entries are removed by AttachmentServiceImpl when an attachment is saved or
+ * deleted, again after commit.
+ */
+@Component
+public class AttachmentCache {
+
+	/**
+	 * Weight of an entry besides its data
+	 */
+	private static final int OVERHEAD = 256;
+
+	@Value("${attachment.cache.heap.bytes:33554432}")
+	private long heapBytes = 33554432;
+
+	@Value("${attachment.cache.offheap.bytes:0}")
+	private long offHeapBytes = 0;
+
+	@Value("${attachment.cache.item.max.bytes:262144}")
+	private long itemMaxBytes = 262144;
+
+	private final LinkedHashMap<Long, Entry> heap = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+
+	private final LinkedHashMap<Long, Entry> offHeap = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+
+	private long heapWeight = 0;
+
+	private long offHeapWeight = 0;
+
+	/**
+	 * Changed on every removal, data loaded before a removal is not cached
+	 */
+	private long version = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Returns cached attachment, null if absent
+	 *
+	 * @param id
+	 * @return
+	 */
+	public synchronized Entry get(long id) {
+		Entry entry = heap.get(id);
+		if (entry == null) {
+			entry = offHeap.get(id);
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry;
+	}
+
+	/**
+	 * Current version, to be taken before attachment is read for put
+	 *
+	 * @return
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * True if data of given size is kept in cache
+	 *
+	 * @param size
+	 * @return
+	 */
+	public boolean isCacheable(Long size) {
+		return size != null && size <= itemMaxBytes && (heapBytes > 0 || offHeapBytes > 0);
+	}
+
+	/**
+	 * Caches attachment read after given version. It is not cached if any
+	 * entry has been removed since then, what was read may be stale.
+	 *
+	 * @param id
+	 * @param dto     attachment information
+	 * @param data    file data, null to keep information only
+	 * @param version
+	 * @return cached entry
+	 */
+	public synchronized Entry put(long id, AttachmentBaseDTO dto, byte[] data, long version) {
+		Entry entry = new Entry(dto, data);
+		if (version != this.version) {
+			return entry;
+		}
+		removeEntry(id);
+		if (entry.getWeight() > heapBytes) {
+			if (data != null && entry.getWeight() <= offHeapBytes) {
+				putOffHeap(id, entry.toOffHeap());
+			}
+			return entry;
+		}
+		heap.put(id, entry);
+		heapWeight += entry.getWeight();
+
+		Iterator<Map.Entry<Long, Entry>> it = heap.entrySet().iterator();
+		while (heapWeight > heapBytes && it.hasNext()) {
+			Map.Entry<Long, Entry> eldest = it.next();
+			it.remove();
+			heapWeight -= eldest.getValue().getWeight();
+			if (eldest.getValue().data != null && offHeapBytes > 0) {
+				putOffHeap(eldest.getKey(), eldest.getValue().toOffHeap());
+			} else {
+				evictions.incrementAndGet();
+			}
+		}
+		return entry;
+	}
+
+	private void putOffHeap(Long id, Entry entry) {
+		offHeap.put(id, entry);
+		offHeapWeight += entry.getWeight();
+		Iterator<Map.Entry<Long, Entry>> it = offHeap.entrySet().iterator();
+		while (offHeapWeight > offHeapBytes && it.hasNext()) {
+			offHeapWeight -= it.next().getValue().getWeight();
+			it.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes attachment now and after commit of current transaction
+	 *
+	 * @param id
+	 */
+	public void evict(final Long id) {
+		if (id == null) {
+			return;
+		}
+		remove(id);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					remove(id);
+				}
+			});
+		}
+	}
+
+	public synchronized void remove(Long id) {
+		version++;
+		removeEntry(id);
+	}
+
+	private void removeEntry(Long id) {
+		Entry entry = heap.remove(id);
+		if (entry != null) {
+			heapWeight -= entry.getWeight();
+		}
+		entry = offHeap.remove(id);
+		if (entry != null) {
+			offHeapWeight -= entry.getWeight();
+		}
+	}
+
+	public synchronized void clear() {
+		version++;
+		heap.clear();
+		offHeap.clear();
+		heapWeight = 0;
+		offHeapWeight = 0;
+	}
+
+	public synchronized int size() {
+		return heap.size() + offHeap.size();
+	}
+
+	public synchronized long getHeapWeight() {
+		return heapWeight;
+	}
+
+	public synchronized long getOffHeapWeight() {
+		return offHeapWeight;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Cached attachment information and, for small files, its data. Entries
+	 * are not changed once created.
+	 */
+	public static class Entry {
+
+		private final Long id;
+
+		private final String type;
+
+		private final String hash;
+
+		private final String codec;
+
+		private final Long size;
+
+		private final Timestamp modifiedDatetime;
+
+		private final byte[] data;
+
+		private final ByteBuffer buffer;
+
+		private Entry(AttachmentBaseDTO dto, byte[] data) {
+			this.id = dto.getId();
+			this.type = dto.getType();
+			this.hash = dto.getHash();
+			this.codec = dto.getCodec();
+			this.size = dto.getSize();
+			this.modifiedDatetime = dto.getModifiedDatetime();
+			this.data = data;
+			this.buffer = null;
+		}
+
+		private Entry(Entry entry, ByteBuffer buffer) {
+			this.id = entry.id;
+			this.type = entry.type;
+			this.hash = entry.hash;
+			this.codec = entry.codec;
+			this.size = entry.size;
+			this.modifiedDatetime = entry.modifiedDatetime;
+			this.data = null;
+			this.buffer = buffer;
+		}
+
+		private Entry toOffHeap() {
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+			direct.put(data);
+			direct.flip();
+			return new Entry(this, direct.asReadOnlyBuffer());
+		}
+
+		private long getWeight() {
+			return OVERHEAD + getLength();
+		}
+
+		/**
+		 * True if data is cached
+		 */
+		public boolean hasData() {
+			return data != null || buffer != null;
+		}
+
+		/**
+		 * Length of cached data, 0 if not cached
+		 */
+		public long getLength() {
+			if (data != null) {
+				return data.length;
+			}
+			return (buffer == null) ? 0 : buffer.limit();
+		}
+
+		/**
+		 * Writes part of cached data
+		 *
+		 * @param out
+		 * @param start
+		 * @param count
+		 * @throws IOException
+		 */
+		public void write(OutputStream out, long start, long count) throws IOException {
+			if (data != null) {
+				out.write(data, (int) start, (int) count);
+				return;
+			}
+			ByteBuffer slice = buffer.duplicate();
+			slice.position((int) start);
+			slice.limit((int) (start + count));
+			WritableByteChannel channel = Channels.newChannel(out);
+			while (slice.hasRemaining()) {
+				channel.write(slice);
+			}
+		}
+
+		/**
+		 * Opens cached data
+		 *
+		 * @return
+		 */
+		public InputStream open() {
+			if (data != null) {
+				return new ByteArrayInputStream(data);
+			}
+			byte[] copy = new byte[buffer.limit()];
+			buffer.duplicate().get(copy);
+			return new ByteArrayInputStream(copy);
+		}
+
+		/**
+		 * Attachment information kept in entry
+		 *
+		 * @return
+		 */
+		public AttachmentSummaryDTO toDTO() {
+			AttachmentSummaryDTO dto = new AttachmentSummaryDTO();
+			dto.setId(id);
+			dto.setType(type);
+			dto.setHash(hash);
+			dto.setCodec(codec);
+			dto.setSize(size);
+			dto.setModifiedDatetime(modifiedDatetime);
+			return dto;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public Timestamp getModifiedDatetime() {
+			return modifiedDatetime;
+		}
+
+	}
+
+}
@@ -1,16 +1,20 @@
 package com.rays.common.attachment;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -19,7 +23,9 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.rays.common.BaseCtl;
+import com.rays.common.ExportWriter;
 import com.rays.common.ORSResponse;
+import com.rays.common.PageResult;
 
 @RestController
 @RequestMapping(value = "Attachment")
@@ -31,6 +37,12 @@ import com.rays.common.ORSResponse;
  */
 public class AttachmentCtl extends BaseCtl<AttachmentForm, AttachmentDTO, AttachmentServiceInt> {
 
+	@Autowired
+	private AttachmentSender attachmentSender;
+
+	@Autowired
+	private ChunkedUploadService chunkedUploadService;
+
 	/**
 	 * Uploads a file. If ID is exist in database then document is updated else
 	 * added to database.
@@ -65,24 +77,157 @@ public class AttachmentCtl extends BaseCtl<AttachmentForm, AttachmentDTO, Attach
 		return response;
 	}
 
+	/**
+	 * Starts a chunked upload of a file. Chunks are sent to upload/{uploadId}
+	 * with their offset, in any order and in parallel.
+	 * 
+	 * @param id          attachment to be replaced, none for new attachment
+	 * @param name
+	 * @param type
+	 * @param size        file size in bytes
+	 * @param description
+	 * @param req
+	 * @return uploadId and chunkSize
+	 */
+	@PostMapping("/upload/init")
+	public ORSResponse startUpload(@RequestParam(required = false) Long id, @RequestParam String name,
+			@RequestParam(required = false) String type, @RequestParam long size,
+			@RequestParam(required = false) String description, HttpServletRequest req) throws IOException {
+		UploadSession session = new UploadSession();
+		session.setAttachmentId(id);
+		session.setName(name);
+		session.setType(type);
+		session.setSize(size);
+		session.setDescription(description);
+		session.setPath(req.getServletPath());
+
+		ORSResponse res = new ORSResponse(true);
+		try {
+			session = chunkedUploadService.start(session, userContext);
+		} catch (IllegalArgumentException e) {
+			res.setSuccess(false);
+			res.addMessage(e.getMessage());
+			return res;
+		}
+		res.addResult("uploadId", session.getId());
+		res.addResult("chunkSize", session.getChunkSize());
+		return res;
+	}
+
+	/**
+	 * Receives a chunk of an upload, request body is the chunk data
+	 * 
+	 * @param uploadId
+	 * @param offset   position of chunk in file
+	 * @param req
+	 * @param response
+	 * @return bytes received so far
+	 */
+	@PutMapping("/upload/{uploadId}")
+	public ORSResponse uploadChunk(@PathVariable String uploadId, @RequestParam long offset, HttpServletRequest req,
+			HttpServletResponse response) throws IOException {
+		UploadSession session = chunkedUploadService.find(uploadId, userContext);
+		if (session == null) {
+			return uploadNotFound(response);
+		}
+		ORSResponse res = new ORSResponse(true);
+		try {
+			chunkedUploadService.write(session, offset, req.getInputStream());
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			res.setSuccess(false);
+			res.addMessage(e.getMessage());
+			return res;
+		}
+		res.addResult("receivedBytes", session.getReceivedBytes());
+		return res;
+	}
+
+	/**
+	 * Status of an upload, missing contains offsets of chunks not received yet
+	 * 
+	 * @param uploadId
+	 * @param response
+	 * @return
+	 */
+	@GetMapping("/upload/{uploadId}")
+	public ORSResponse uploadStatus(@PathVariable String uploadId, HttpServletResponse response)
+			throws IOException {
+		UploadSession session = chunkedUploadService.find(uploadId, userContext);
+		if (session == null) {
+			return uploadNotFound(response);
+		}
+		ORSResponse res = new ORSResponse(true);
+		res.addResult("size", session.getSize());
+		res.addResult("chunkSize", session.getChunkSize());
+		res.addResult("receivedBytes", session.getReceivedBytes());
+		res.addResult("missing", session.getMissing());
+		return res;
+	}
+
+	/**
+	 * Saves a completely received upload as attachment
+	 * 
+	 * @param uploadId
+	 * @param response
+	 * @return id of attachment
+	 */
+	@PostMapping("/upload/{uploadId}/complete")
+	public ORSResponse completeUpload(@PathVariable String uploadId, HttpServletResponse response)
+			throws IOException {
+		UploadSession session = chunkedUploadService.find(uploadId, userContext);
+		if (session == null) {
+			return uploadNotFound(response);
+		}
+		ORSResponse res = new ORSResponse(true);
+		try {
+			res.addResult("id", chunkedUploadService.complete(session, userContext));
+		} catch (IllegalStateException e) {
+			response.setStatus(HttpServletResponse.SC_CONFLICT);
+			res.setSuccess(false);
+			res.addMessage(e.getMessage());
+			res.addResult("missing", session.getMissing());
+		}
+		return res;
+	}
+
+	/**
+	 * Cancels an upload and removes its data
+	 * 
+	 * @param uploadId
+	 * @param response
+	 * @return
+	 */
+	@DeleteMapping("/upload/{uploadId}")
+	public ORSResponse cancelUpload(@PathVariable String uploadId, HttpServletResponse response)
+			throws IOException {
+		UploadSession session = chunkedUploadService.find(uploadId, userContext);
+		if (session == null) {
+			return uploadNotFound(response);
+		}
+		chunkedUploadService.cancel(session);
+		return new ORSResponse(true);
+	}
+
+	private ORSResponse uploadNotFound(HttpServletResponse response) {
+		response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+		return new ORSResponse(false, "Upload not found");
+	}
+
 	/**
 	 * Download a document for given id
 	 * 
 	 * @param id
+	 * @param request
 	 * @param response
 	 */
 	@GetMapping("/download/{id}")
-	public @ResponseBody void download(@PathVariable long id, HttpServletResponse response) {
-
-		AttachmentDTO dto = baseService.findById(id, userContext);
+	public @ResponseBody void download(@PathVariable long id, HttpServletRequest request,
+			HttpServletResponse response) {
 
 		try {
-			if (dto != null) {
-				response.setContentType(dto.getType());
-				OutputStream out = response.getOutputStream();
-				out.write(dto.getDoc());
-				out.close();
-			} else {
+			if (!attachmentSender.send(id, request, response, userContext)) {
+				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 				response.getWriter().write("ERROR: File not found");
 			}
 		} catch (IOException e) {
@@ -90,33 +235,108 @@ public class AttachmentCtl extends BaseCtl<AttachmentForm, AttachmentDTO, Attach
 		}
 	}
 
+	/**
+	 * Returns attachment information without file data
+	 */
 	@Override
-	public ORSResponse search(@RequestBody AttachmentForm form) {
+	public ORSResponse get(@PathVariable long id) {
+		ORSResponse res = new ORSResponse(true);
+		AttachmentSummaryDTO dto = baseService.findSummaryById(id, userContext);
+		if (dto != null) {
+			res.addData(dto);
+		} else {
+			res.setSuccess(false);
+			res.addMessage("Record not found");
+		}
+		return res;
+	}
 
-		System.out.println(form.getName() + " Page size is***** 88 -------yy-----------***********");
+	@Override
+	public ORSResponse deleteMany(@PathVariable String[] ids, @RequestParam("pageNo") String pageNo,
+			@RequestBody AttachmentForm form) {
+		ORSResponse res = new ORSResponse(true);
+		try {
+			List<Long> idList = new ArrayList<Long>(ids.length);
+			for (String id : ids) {
+				idList.add(Long.parseLong(id));
+			}
+			baseService.deleteAll(idList, userContext);
+			PageResult<AttachmentSummaryDTO> page = baseService.searchPage(getSummary(form),
+					Integer.parseInt(pageNo), 5, false, userContext);
+			res.addData(page.getList());
+			res.addResult("nextList", page.isHasNext() ? 1 : 0);
+			res.addResult("hasNext", page.isHasNext());
+			res.setSuccess(true);
+			res.addMessage("Records Deleted Successfully");
+		} catch (Exception e) {
+			res.setSuccess(false);
+			res.addMessage(e.getMessage());
+		}
+		return res;
+	}
 
-		AttachmentSummaryDTO dto = new AttachmentSummaryDTO();
+	@Override
+	public ORSResponse search(@RequestBody AttachmentForm form) {
 
-		dto.setId(form.getId());
-		dto.setName(form.getName());
-		dto.setType(form.getType());
-		dto.setTags(form.getTags());
-		dto.setUserId(form.getUserId());
-		dto.setPath(form.getPath());
+		System.out.println(form.getName() + " Page size is***** 88 -------yy-----------***********");
 
 		ORSResponse res = new ORSResponse(true);
 
-		res.addData(baseService.search(dto, userContext));
+		res.addData(baseService.search(getSummary(form), userContext));
 
 		return res;
 
 	}
 
 	@Override
-	public ORSResponse search(@RequestBody AttachmentForm form, int pageNo) {
+	public ORSResponse search(@RequestBody AttachmentForm form, int pageNo, boolean count) {
 		// 0 is first page index
 		pageNo = (pageNo < 0) ? 0 : pageNo;
 
+		ORSResponse res = new ORSResponse(true);
+
+		System.out.println(form.getName() + " Page size is***** 88 ------------------***********");
+
+		PageResult<AttachmentSummaryDTO> page = baseService.searchPage(getSummary(form), pageNo, 5, count,
+				userContext);
+		res.addData(page.getList());
+		res.addResult("nextList", page.isHasNext() ? 1 : 0);
+		res.addResult("hasNext", page.isHasNext());
+		if (page.getTotalCount() != null) {
+			res.addResult("totalCount", page.getTotalCount());
+		}
+
+		return res;
+	}
+
+	@Override
+	public ORSResponse searchByCursor(@RequestBody AttachmentForm form, @PathVariable String cursor) {
+		ORSResponse res = new ORSResponse(true);
+		try {
+			PageResult<AttachmentSummaryDTO> page = baseService.searchAfter(getSummary(form), cursor, 5,
+					userContext);
+			res.addData(page.getList());
+			res.addResult("hasNext", page.isHasNext());
+			res.addResult("nextCursor", page.getNextCursor());
+		} catch (IllegalArgumentException e) {
+			res.setSuccess(false);
+			res.addMessage("Invalid cursor");
+		}
+		return res;
+	}
+
+	@Override
+	protected long export(AttachmentForm form, ExportWriter writer) {
+		return baseService.export(getSummary(form), writer, userContext);
+	}
+
+	/**
+	 * Creates search criteria of attachment information
+	 * 
+	 * @param form
+	 * @return
+	 */
+	private AttachmentSummaryDTO getSummary(AttachmentForm form) {
 		AttachmentSummaryDTO dto = new AttachmentSummaryDTO();
 		dto.setId(form.getId());
 		dto.setName(form.getName());
@@ -124,14 +344,7 @@ public class AttachmentCtl extends BaseCtl<AttachmentForm, AttachmentDTO, Attach
 		dto.setTags(form.getTags());
 		dto.setUserId(form.getUserId());
 		dto.setPath(form.getPath());
-
-		ORSResponse res = new ORSResponse(true);
-
-		System.out.println(form.getName() + " Page size is***** 88 ------------------***********");
-
-		res.addData(baseService.search(dto, pageNo, 5, userContext));
-
-		return res;
+		return dto;
 	}
 
 }
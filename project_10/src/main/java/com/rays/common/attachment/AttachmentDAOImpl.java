@@ -1,11 +1,11 @@
 package com.rays.common.attachment;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-import javax.persistence.TypedQuery;
+import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
@@ -28,79 +28,31 @@ public class AttachmentDAOImpl extends BaseDAOImpl<AttachmentDTO> implements Att
 		return AttachmentDTO.class;
 	}
 
-	@Override
-	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, int pageNo, int pageSize,
-			UserContext userContext) {
-
-		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-
-		// Create criteria
-		CriteriaQuery<AttachmentSummaryDTO> cq = builder.createQuery(AttachmentSummaryDTO.class);
-
-		// Columns information
-		Root<AttachmentSummaryDTO> qRoot = cq.from(AttachmentSummaryDTO.class);
-
-		// Column of query
-		cq.select(qRoot);
-
-		// Create where conditions
-		List<Predicate> whereClause = new ArrayList<Predicate>();
-
-		if (!isEmptyString(dto.getName())) {
-
-			whereClause.add(builder.like(qRoot.get("name"), dto.getName() + "%"));
-		}
-
-		if (!isEmptyString(dto.getDescription())) {
-
-			whereClause.add(builder.like(qRoot.get("description"), "%" + dto.getDescription() + "%"));
-		}
-
-		if (!isEmptyString(dto.getTags())) {
-
-			whereClause.add(builder.like(qRoot.get("tags"), "%" + dto.getTags() + "%"));
-		}
-
-		if (!isEmptyString(dto.getPath())) {
-
-			whereClause.add(builder.like(qRoot.get("path"), dto.getPath() + "%"));
-		}
-
-		if (!isZeroNumber(dto.getUserId())) {
-
-			whereClause.add(builder.equal(qRoot.get("userId"), dto.getUserId()));
-		}
-
-		if (!isZeroNumber(dto.getId())) {
-			
-			whereClause.add(builder.equal(qRoot.get("id"), dto.getId()));
-		}
-
-		// Put organization filter
-		if (dto.isGroupFilter()) {
-			whereClause.add(builder.equal(qRoot.get("orgId"), dto.getOrgId()));
-		}
-
-		System.out.println(  dto.getName() +  " Where conditions " + whereClause.size() );
-		cq.where(whereClause.toArray(new Predicate[whereClause.size()]));
-
-		cq.orderBy(builder.asc(qRoot.get("name")));
-
-		TypedQuery<AttachmentSummaryDTO> query = entityManager.createQuery(cq);
-
-		if (pageSize > 0) {
-			query.setFirstResult(pageNo);
-			query.setMaxResults(pageSize);
-		}
+	public int deleteById(long id, UserContext userContext) {
+		Query q = entityManager.createQuery("delete from AttachmentDTO where id = :id");
+		q.setParameter("id", id);
+		return q.executeUpdate();
+	}
 
-		List<AttachmentSummaryDTO> list = query.getResultList();
+	public List<Long> findIdsWithoutHash(int max) {
+		return entityManager.createQuery("select id from AttachmentSummaryDTO where hash is null order by id", Long.class)
+				.setMaxResults(max).getResultList();
+	}
 
-		return list;
+	public int updateHash(long id, String hash) {
+		Query q = entityManager.createQuery("update AttachmentDTO set hash = :hash, doc = null where id = :id");
+		q.setParameter("hash", hash);
+		q.setParameter("id", id);
+		return q.executeUpdate();
 	}
 
-	@Override
-	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, UserContext userContext) {
-		return search(dto, 0, 0, userContext);
+	public List<String> findReferencedHashes(Collection<String> hashes) {
+		if (hashes.isEmpty()) {
+			return new ArrayList<String>();
+		}
+		return entityManager
+				.createQuery("select distinct hash from AttachmentSummaryDTO where hash in :hashes", String.class)
+				.setParameter("hashes", hashes).getResultList();
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package com.rays.common.attachment;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.rays.common.BaseDAOInt;
@@ -11,8 +12,38 @@ import com.rays.common.UserContext;
  */
 public interface AttachmentDAOInt extends BaseDAOInt<AttachmentDTO> {
 
-	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, int pageNo, int pageSize, UserContext userContext);
+	/**
+	 * Deletes attachment without loading its data
+	 * 
+	 * @param id
+	 * @param userContext
+	 * @return number of deleted records
+	 */
+	public int deleteById(long id, UserContext userContext);
 
-	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, UserContext userContext);
+	/**
+	 * IDs of attachments whose data is still in DOC column
+	 * 
+	 * @param max
+	 * @return
+	 */
+	public List<Long> findIdsWithoutHash(int max);
+
+	/**
+	 * Sets key of data moved to AttachmentStore and clears DOC column
+	 * 
+	 * @param id
+	 * @param hash
+	 * @return number of updated records
+	 */
+	public int updateHash(long id, String hash);
+
+	/**
+	 * Keys of given ones that are referenced by attachments
+	 * 
+	 * @param hashes
+	 * @return
+	 */
+	public List<String> findReferencedHashes(Collection<String> hashes);
 
 }
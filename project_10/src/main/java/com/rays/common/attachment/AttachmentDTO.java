@@ -1,21 +1,24 @@
 package com.rays.common.attachment;
 
-import java.io.IOException;
-
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Contains attached file information and data
  *Dipanshi Mukati 
  */
 
 @Entity
-@Table(name = "ST_ATTACHMENT")
+@Table(name = "ST_ATTACHMENT", indexes = { @Index(name = "IDX_ATTACHMENT_HASH", columnList = "DOC_HASH") })
 
 public class AttachmentDTO extends AttachmentBaseDTO {
 
@@ -23,21 +26,36 @@ public class AttachmentDTO extends AttachmentBaseDTO {
 		super();
 	}
 
+	/**
+	 * File is not read here, AttachmentServiceImpl streams it to
+	 * AttachmentStore when the attachment is saved.
+	 */
 	public AttachmentDTO(MultipartFile file) {
 		name = file.getOriginalFilename();
 		type = file.getContentType();
-		
-		System.out.println("file Name :: " +name);
-		System.out.println(type);
-		try {
-			doc = file.getBytes();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		size = file.getSize();
+		content = file;
+	}
+
+	/**
+	 * Contains source of file data to be stored
+	 */
+	@Transient
+	@JsonIgnore
+	private InputStreamSource content;
+
+	public InputStreamSource getContent() {
+		return content;
+	}
+
+	public void setContent(InputStreamSource content) {
+		this.content = content;
 	}
 
 	/**
-	 * Contains file data
+	 * Contains file data until it is saved, AttachmentServiceImpl moves it to
+	 * AttachmentStore. Records saved before the store was introduced keep it
+	 * here until AttachmentStoreMaintenance migrates them.
 	 */
 	@Lob
 	@Column(name = "DOC")
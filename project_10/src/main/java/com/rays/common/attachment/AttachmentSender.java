@@ -0,0 +1,373 @@
+package com.rays.common.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.rays.common.UserContext;
+
+/**
+ * Sends file data of an attachment as HTTP response.
+ *
+ * ETag is the key of data in AttachmentStore, so a client holding the same
+ * data gets 304 without any data being read. A single byte range is sent as
+ * 206 Partial Content, other range requests get the whole file.
+ *
+ * Data stored compressed is sent with Content-Encoding to clients accepting
+ * it, other clients get it decompressed while it is sent.
+ *
+ * Data in local files is handed to the container as sendfile when it supports
+ * it, otherwise it is copied with FileChannel.transferTo. It is never read
+ * into the heap as a whole, except small files kept in AttachmentCache.
+ */
+@Component
+public class AttachmentSender {
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	@Autowired
+	private AttachmentStore attachmentStore;
+
+	@Autowired
+	private AttachmentServiceInt attachmentService;
+
+	@Autowired
+	private AttachmentCache attachmentCache;
+
+	@Autowired
+	private ThumbnailService thumbnailService;
+
+	@Value("${attachment.cache.max-age:60}")
+	private long maxAge = 60;
+
+	/**
+	 * Sends data of attachment by id, from AttachmentCache when it is there
+	 *
+	 * @param id
+	 * @param request
+	 * @param response
+	 * @param userContext
+	 * @return false if attachment does not exist
+	 * @throws IOException
+	 */
+	public boolean send(long id, HttpServletRequest request, HttpServletResponse response, UserContext userContext)
+			throws IOException {
+		return send(id, 0, request, response, userContext);
+	}
+
+	/**
+	 * Sends picture scaled to given size when its copy of that size is made,
+	 * otherwise original data
+	 *
+	 * @param id
+	 * @param size        requested width and height in pixels, 0 for original
+	 * @param request
+	 * @param response
+	 * @param userContext
+	 * @return false if attachment does not exist
+	 * @throws IOException
+	 */
+	public boolean send(long id, int size, HttpServletRequest request, HttpServletResponse response,
+			UserContext userContext) throws IOException {
+		long version = attachmentCache.getVersion();
+		AttachmentCache.Entry entry = attachmentCache.get(id);
+		if (entry == null) {
+			AttachmentSummaryDTO dto = attachmentService.findSummaryById(id, userContext);
+			if (dto == null) {
+				return false;
+			}
+			if (dto.getHash() == null) {
+				send(dto, request, response, userContext);
+				return true;
+			}
+			byte[] data = null;
+			if (attachmentCache.isCacheable(dto.getSize())) {
+				try (InputStream in = attachmentStore.open(dto.getHash())) {
+					data = StreamUtils.copyToByteArray(in);
+				}
+			}
+			entry = attachmentCache.put(id, dto, data, version);
+		}
+		AttachmentSummaryDTO dto = entry.toDTO();
+		String thumbnail = (size > 0) ? thumbnailService.find(dto, size) : null;
+		if (thumbnail != null) {
+			dto.setHash(thumbnail);
+			dto.setCodec(null);
+			dto.setType(thumbnailService.getType(dto.getType()));
+			send(dto, null, request, response);
+		} else {
+			send(dto, entry, request, response);
+		}
+		return true;
+	}
+
+	/**
+	 * Sends data of attachment, or 304 if client has it already
+	 *
+	 * @param dto         attachment information
+	 * @param request
+	 * @param response
+	 * @param userContext
+	 * @throws IOException
+	 */
+	public void send(AttachmentBaseDTO dto, HttpServletRequest request, HttpServletResponse response,
+			UserContext userContext) throws IOException {
+
+		if (dto.getHash() == null) {
+			// not migrated to store yet, sent as before
+			response.setContentType(dto.getType());
+			response.setHeader("Cache-Control", "private, max-age=" + maxAge);
+			try (InputStream in = attachmentService.openContent(dto, userContext)) {
+				byte[] data = StreamUtils.copyToByteArray(in);
+				response.setContentLength(data.length);
+				if (!isHead(request)) {
+					response.getOutputStream().write(data);
+				}
+			}
+			return;
+		}
+		send(dto, null, request, response);
+	}
+
+	/**
+	 * Sends data kept in store, or in cache entry if given and it has data
+	 */
+	private void send(AttachmentBaseDTO dto, AttachmentCache.Entry entry, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+
+		response.setContentType(dto.getType());
+		response.setHeader("Cache-Control", "private, max-age=" + maxAge);
+
+		// compressed data is sent as is to clients accepting its encoding
+		boolean decompress = false;
+		if (dto.getCodec() != null) {
+			response.setHeader("Vary", "Accept-Encoding");
+			decompress = !accepts(request, dto.getCodec());
+		}
+		String etag = "\"" + dto.getHash() + (decompress ? "-identity" : "") + "\"";
+		response.setHeader("ETag", etag);
+		if (dto.getModifiedDatetime() != null) {
+			response.setDateHeader("Last-Modified", dto.getModifiedDatetime().getTime());
+		}
+		if (isNotModified(request, dto, etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		boolean cached = entry != null && entry.hasData();
+		if (decompress) {
+			// length of decompressed data is known, ranges are not supported
+			if (dto.getSize() != null) {
+				response.setContentLengthLong(dto.getSize());
+			}
+			if (!isHead(request)) {
+				try (InputStream in = new GZIPInputStream(
+						cached ? entry.open() : attachmentStore.open(dto.getHash()))) {
+					StreamUtils.copy(in, response.getOutputStream());
+				}
+			}
+			return;
+		}
+		if (dto.getCodec() != null) {
+			response.setHeader("Content-Encoding", dto.getCodec());
+		}
+		long length = cached ? entry.getLength() : attachmentStore.size(dto.getHash());
+		response.setHeader("Accept-Ranges", "bytes");
+
+		long start = 0;
+		long end = length - 1;
+		String range = request.getHeader("Range");
+		String ifRange = request.getHeader("If-Range");
+		if (range != null && (ifRange == null || ifRange.equals(etag))) {
+			long[] bounds = parseRange(range, length);
+			if (bounds == null) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			if (bounds.length == 2) {
+				start = bounds[0];
+				end = bounds[1];
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+			}
+		}
+
+		long count = end - start + 1;
+		response.setContentLengthLong(count);
+		if (isHead(request) || count == 0) {
+			return;
+		}
+		if (cached) {
+			entry.write(response.getOutputStream(), start, count);
+			return;
+		}
+		transfer(dto.getHash(), start, count, request, response);
+	}
+
+	private void transfer(String key, long start, long count, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		Path file = attachmentStore.getFile(key);
+		if (file == null) {
+			try (InputStream in = attachmentStore.open(key)) {
+				StreamUtils.copyRange(in, response.getOutputStream(), start, start + count - 1);
+			}
+			return;
+		}
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			// container writes file after handler returns, without copying it to user space
+			request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, start + count);
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			OutputStream out = response.getOutputStream();
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			long end = start + count;
+			while (position < end) {
+				position += channel.transferTo(position, end - position, target);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * True if Accept-Encoding of request allows given content coding. A coding
+	 * named in the header takes precedence over "*".
+	 */
+	static boolean accepts(HttpServletRequest request, String coding) {
+		String accept = request.getHeader("Accept-Encoding");
+		if (accept == null) {
+			return false;
+		}
+		Boolean any = null;
+		for (String part : accept.split(",")) {
+			String[] params = part.split(";");
+			String name = params[0].trim();
+			if (name.equalsIgnoreCase(coding)) {
+				return isAcceptable(params);
+			}
+			if (name.equals("*") && any == null) {
+				any = isAcceptable(params);
+			}
+		}
+		return Boolean.TRUE.equals(any);
+	}
+
+	/**
+	 * False if quality value of an Accept-Encoding entry is 0 or invalid
+	 */
+	private static boolean isAcceptable(String[] params) {
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim();
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2).trim()) > 0;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * True if client copy matches by If-None-Match, or by If-Modified-Since when
+	 * no If-None-Match is given
+	 */
+	private boolean isNotModified(HttpServletRequest request, AttachmentBaseDTO dto, String etag) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+				if (tag.equals(etag) || tag.equals("*")) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader("If-Modified-Since");
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return ifModifiedSince != -1 && dto.getModifiedDatetime() != null
+				&& dto.getModifiedDatetime().getTime() / 1000 <= ifModifiedSince / 1000;
+	}
+
+	/**
+	 * Parses Range header
+	 *
+	 * @param range
+	 * @param length size of data
+	 * @return first and last byte of a single satisfiable range, empty array if
+	 *         whole data is to be sent, null if no range is satisfiable
+	 */
+	static long[] parseRange(String range, long length) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return new long[0];
+		}
+		String spec = range.substring(6).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return new long[0];
+		}
+		try {
+			long start;
+			long end;
+			if (dash == 0) {
+				// last n bytes
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix <= 0) {
+					return null;
+				}
+				start = Math.max(length - suffix, 0);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(spec.substring(0, dash));
+				end = (dash == spec.length() - 1) ? length - 1
+						: Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+				if (end < start) {
+					return (start >= length) ? null : new long[0];
+				}
+			}
+			if (start >= length) {
+				return null;
+			}
+			return new long[] { start, end };
+		} catch (NumberFormatException e) {
+			return new long[0];
+		}
+	}
+
+	private static boolean isHead(HttpServletRequest request) {
+		return "HEAD".equals(request.getMethod());
+	}
+
+}
@@ -1,14 +1,29 @@
 package com.rays.common.attachment;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.rays.common.BaseServiceImpl;
+import com.rays.common.PageResult;
 import com.rays.common.UserContext;
+import com.rays.exception.DatabaseException;
 
 /**
  * Session facade of Role Service. It is transactional, apply declarative
@@ -32,15 +47,251 @@ public class AttachmentServiceImpl extends BaseServiceImpl<AttachmentDTO, Attach
 		return baseDao.findByUniqueKey("name", name, userContext);
 	}
 
+	@Autowired
+	private AttachmentSummaryDAOInt summaryDao;
+
+	@Autowired
+	private AttachmentStore attachmentStore;
+
+	@Autowired
+	private AttachmentCache attachmentCache;
+
+	@Value("${attachment.compress.types:text/,application/json,application/xml,+xml,+json}")
+	private String[] compressTypes = new String[0];
+
+	@Value("${attachment.compress.min.ratio:0.9}")
+	private double compressMinRatio = 0.9;
+
+	/**
+	 * File data is written to AttachmentStore, record keeps its key
+	 */
+	@Override
+	public long add(AttachmentDTO dto, UserContext userContext) {
+		storeContent(dto);
+		return super.add(dto, userContext);
+	}
+
+	/**
+	 * File data is written to AttachmentStore, record keeps its key. Key of
+	 * existing record is kept if no new data is given.
+	 */
+	@Override
+	public void update(AttachmentDTO dto, UserContext userContext) {
+		storeContent(dto);
+		keepHash(dto, userContext);
+		super.update(dto, userContext);
+		attachmentCache.evict(dto.getId());
+	}
+
+	@Override
+	public List<Long> saveAll(List<AttachmentDTO> list, UserContext userContext) {
+		for (AttachmentDTO dto : list) {
+			storeContent(dto);
+			if (dto.getId() != null && dto.getId() > 0) {
+				keepHash(dto, userContext);
+				attachmentCache.evict(dto.getId());
+			}
+		}
+		return super.saveAll(list, userContext);
+	}
+
 	@Override
+	public int deleteAll(Collection<Long> ids, UserContext userContext) {
+		for (Long id : ids) {
+			attachmentCache.evict(id);
+		}
+		return super.deleteAll(ids, userContext);
+	}
+
+	/**
+	 * Streams data of uploaded file to store, size and hash are computed while
+	 * it is written. Data of compressible types is stored compressed unless it
+	 * does not get smaller than attachment.compress.min.ratio of its size.
+	 */
+	private void storeContent(AttachmentDTO dto) {
+		InputStreamSource source = dto.getContent();
+		if (source == null && dto.getDoc() != null) {
+			source = new ByteArrayResource(dto.getDoc());
+		}
+		if (source == null) {
+			return;
+		}
+		try {
+			String codec = isCompressible(dto.getType()) ? AttachmentStore.GZIP : null;
+			String hash;
+			long size;
+			try (CountingInputStream in = new CountingInputStream(source.getInputStream())) {
+				hash = attachmentStore.put(in, codec);
+				size = in.getCount();
+			}
+			if (codec != null && attachmentStore.size(hash) > size * compressMinRatio) {
+				// not worth decompressing on download, stored again as is
+				try (InputStream in = source.getInputStream()) {
+					hash = attachmentStore.put(in);
+				}
+				codec = null;
+			}
+			dto.setHash(hash);
+			dto.setCodec(codec);
+			dto.setSize(size);
+			dto.setContent(null);
+			dto.setDoc(null);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * True if MIME type matches attachment.compress.types. A type ending with
+	 * "/" matches all its subtypes, one starting with "+" matches a suffix.
+	 */
+	private boolean isCompressible(String type) {
+		if (type == null) {
+			return false;
+		}
+		int params = type.indexOf(';');
+		type = ((params < 0) ? type : type.substring(0, params)).trim().toLowerCase();
+		for (String t : compressTypes) {
+			if (t.isEmpty()) {
+				continue;
+			}
+			if (t.endsWith("/") ? type.startsWith(t) : t.startsWith("+") ? type.endsWith(t) : type.equals(t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void keepHash(AttachmentDTO dto, UserContext userContext) {
+		if (dto.getHash() != null) {
+			return;
+		}
+		AttachmentSummaryDTO summary = findSummaryById(dto.getId(), userContext);
+		if (summary == null) {
+			return;
+		}
+		if (summary.getHash() != null) {
+			dto.setHash(summary.getHash());
+			dto.setCodec(summary.getCodec());
+			dto.setSize(summary.getSize());
+		} else {
+			// not migrated yet, data is moved now so update does not clear it
+			AttachmentDTO existing = baseDao.findByPK(dto.getId(), userContext);
+			dto.setDoc(existing.getDoc());
+			storeContent(dto);
+		}
+	}
+
+	/**
+	 * Opens data of attachment, decompressed if it is stored compressed
+	 */
+	@Transactional(readOnly = true)
+	public InputStream openContent(AttachmentBaseDTO dto, UserContext userContext) throws IOException {
+		if (dto.getHash() != null) {
+			InputStream in = attachmentStore.open(dto.getHash());
+			return AttachmentStore.GZIP.equals(dto.getCodec()) ? new GZIPInputStream(in) : in;
+		}
+		// not migrated yet
+		AttachmentDTO full = baseDao.findByPK(dto.getId(), userContext);
+		byte[] doc = (full == null || full.getDoc() == null) ? new byte[0] : full.getDoc();
+		return new ByteArrayInputStream(doc);
+	}
+
+	@Transactional(readOnly = true)
 	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, int pageNo, int pageSize,
 			UserContext userContext) {
-		return baseDao.search(dto, pageNo, pageSize, userContext);
+		return summaryDao.search(dto, pageNo, pageSize, userContext);
 	}
 
-	@Override
+	@Transactional(readOnly = true)
 	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, UserContext userContext) {
-		return baseDao.search(dto, userContext);
+		return summaryDao.search(dto, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public PageResult<AttachmentSummaryDTO> searchPage(AttachmentSummaryDTO dto, int pageNo, int pageSize,
+			boolean countTotal, UserContext userContext) {
+		return summaryDao.searchPage(dto, pageNo, pageSize, countTotal, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public PageResult<AttachmentSummaryDTO> searchAfter(AttachmentSummaryDTO dto, String cursor, int pageSize,
+			UserContext userContext) {
+		return summaryDao.searchAfter(dto, cursor, pageSize, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public long export(AttachmentSummaryDTO dto, Consumer<? super AttachmentSummaryDTO> action,
+			UserContext userContext) {
+		return summaryDao.scroll(dto, action, userContext);
+	}
+
+	@Transactional(readOnly = true)
+	public AttachmentSummaryDTO findSummaryById(long id, UserContext userContext) {
+		return summaryDao.findByPK(id, userContext);
+	}
+
+	public void deleteById(long id, UserContext userContext) {
+		baseDao.deleteById(id, userContext);
+		attachmentCache.evict(id);
+	}
+
+	/**
+	 * Deletes attachment without loading file data. Returned DTO contains
+	 * attachment information only.
+	 */
+	@Override
+	public AttachmentDTO delete(long id, UserContext userContext) {
+		AttachmentSummaryDTO summary = findSummaryById(id, userContext);
+		if (summary == null) {
+			throw new DatabaseException("Record not found");
+		}
+		baseDao.deleteById(id, userContext);
+		attachmentCache.evict(id);
+		AttachmentDTO dto = new AttachmentDTO();
+		BeanUtils.copyProperties(summary, dto);
+		return dto;
+	}
+
+	/**
+	 * Counts bytes read, size of data before it is compressed
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		public long getCount() {
+			return count;
+		}
 	}
 
 }
@@ -1,8 +1,12 @@
 package com.rays.common.attachment;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.rays.common.BaseServiceInt;
+import com.rays.common.PageResult;
 import com.rays.common.UserContext;
 
 /**
@@ -16,6 +20,41 @@ public interface AttachmentServiceInt extends BaseServiceInt<AttachmentDTO> {
 			UserContext userContext);
 
 	public List<AttachmentSummaryDTO> search(AttachmentSummaryDTO dto, UserContext userContext);
-	
-	
+
+	public PageResult<AttachmentSummaryDTO> searchPage(AttachmentSummaryDTO dto, int pageNo, int pageSize,
+			boolean countTotal, UserContext userContext);
+
+	public PageResult<AttachmentSummaryDTO> searchAfter(AttachmentSummaryDTO dto, String cursor, int pageSize,
+			UserContext userContext);
+
+	public long export(AttachmentSummaryDTO dto, Consumer<? super AttachmentSummaryDTO> action,
+			UserContext userContext);
+
+	/**
+	 * Finds attachment information without file data, null if not found
+	 * 
+	 * @param id
+	 * @param userContext
+	 * @return
+	 */
+	public AttachmentSummaryDTO findSummaryById(long id, UserContext userContext);
+
+	/**
+	 * Deletes attachment without loading file data
+	 * 
+	 * @param id
+	 * @param userContext
+	 */
+	public void deleteById(long id, UserContext userContext);
+
+	/**
+	 * Opens file data of attachment
+	 * 
+	 * @param dto         attachment information
+	 * @param userContext
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream openContent(AttachmentBaseDTO dto, UserContext userContext) throws IOException;
+
 }
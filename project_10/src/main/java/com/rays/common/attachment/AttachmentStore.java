@@ -0,0 +1,131 @@
+package com.rays.common.attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Stores file data of attachments, ST_ATTACHMENT keeps only its key. Key is
+ * SHA-256 of the data in hex, so identical files are stored once.
+ *
+ * Data may be shared by many attachments, it is never deleted with an
+ * attachment. Data no longer referenced is removed by
+ * AttachmentStoreMaintenance, together with data derived from it.
+ */
+public interface AttachmentStore {
+
+	/**
+	 * Codec of data compressed with gzip, same as its HTTP Content-Encoding
+	 */
+	public static final String GZIP = "gzip";
+
+	/**
+	 * Stores data read from stream, stream is not closed
+	 *
+	 * @param in
+	 * @return key of data
+	 * @throws IOException
+	 */
+	public default String put(InputStream in) throws IOException {
+		return put(in, null);
+	}
+
+	/**
+	 * Stores data read from stream compressed with given codec, stream is not
+	 * closed. Key is computed from compressed data, it is opened as it is
+	 * stored.
+	 *
+	 * @param in
+	 * @param codec GZIP, or null to store data as is
+	 * @return key of data
+	 * @throws IOException
+	 */
+	public String put(InputStream in, String codec) throws IOException;
+
+	/**
+	 * Stores data
+	 *
+	 * @param data
+	 * @return key of data
+	 * @throws IOException
+	 */
+	public default String put(byte[] data) throws IOException {
+		return put(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Stores data derived from stored data, like a smaller picture, next to it.
+	 * Derived data is replaced if it exists and is deleted with its source.
+	 *
+	 * @param key  key of source data
+	 * @param name name of derived data, lower case letters and digits
+	 * @param in
+	 * @return key of derived data
+	 * @throws IOException
+	 */
+	public String putDerivative(String key, String name, InputStream in) throws IOException;
+
+	/**
+	 * Key of data derived from stored data, it can be opened like any data
+	 *
+	 * @param key
+	 * @param name
+	 * @return
+	 */
+	public default String getDerivativeKey(String key, String name) {
+		return key + "." + name;
+	}
+
+	/**
+	 * Opens stored data
+	 *
+	 * @param key
+	 * @return
+	 * @throws IOException if data does not exist
+	 */
+	public InputStream open(String key) throws IOException;
+
+	/**
+	 * Size of stored data in bytes
+	 *
+	 * @param key
+	 * @return
+	 * @throws IOException if data does not exist
+	 */
+	public long size(String key) throws IOException;
+
+	/**
+	 * Local file holding data, it can be sent without copying it through the
+	 * heap. Null if the store does not keep data in local files.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public default Path getFile(String key) {
+		return null;
+	}
+
+	public boolean exists(String key);
+
+	/**
+	 * Deletes stored data unless it was stored again since given time
+	 *
+	 * @param key
+	 * @param storedBefore epoch milliseconds
+	 * @return true if data is deleted
+	 * @throws IOException
+	 */
+	public boolean delete(String key, long storedBefore) throws IOException;
+
+	/**
+	 * Passes keys of data last stored before given time to action
+	 *
+	 * @param storedBefore epoch milliseconds
+	 * @param action
+	 * @throws IOException
+	 */
+	public void scan(long storedBefore, Consumer<String> action) throws IOException;
+
+}
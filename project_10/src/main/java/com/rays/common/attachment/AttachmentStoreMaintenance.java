@@ -0,0 +1,135 @@
+package com.rays.common.attachment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves file data of old records from DOC column to AttachmentStore, and
+ * removes stored data no attachment refers to.
+ *
+ * Migration runs at start up when attachment.store.migrate is true, one
+ * transaction per batch so it can be stopped and started again. Data stored
+ * less than attachment.store.gc.grace.ms ago is never removed, its record may
+ * not be committed yet.
+ */
+@Component
+public class AttachmentStoreMaintenance {
+
+	private static Logger log = LoggerFactory.getLogger(AttachmentStoreMaintenance.class);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private AttachmentDAOInt attachmentDao;
+
+	@Autowired
+	private AttachmentStore attachmentStore;
+
+	@Value("${attachment.store.migrate:false}")
+	private boolean migrate = false;
+
+	@Value("${attachment.store.migrate.batch:20}")
+	private int batchSize = 20;
+
+	@Value("${attachment.store.gc.grace.ms:86400000}")
+	private long grace = 86400000;
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void init() {
+		if (migrate) {
+			migrate();
+		}
+	}
+
+	/**
+	 * Moves data of all records still holding it in DOC column
+	 *
+	 * @return number of moved records
+	 */
+	public int migrate() {
+		int count = 0;
+		while (true) {
+			int moved = new TransactionTemplate(transactionManager).execute(status -> migrateBatch());
+			if (moved == 0) {
+				break;
+			}
+			count += moved;
+			log.info("Attachments moved to store " + count);
+		}
+		return count;
+	}
+
+	private int migrateBatch() {
+		List<Long> ids = attachmentDao.findIdsWithoutHash(batchSize);
+		for (Long id : ids) {
+			// records are read one by one, only one file is in memory
+			AttachmentDTO dto = attachmentDao.findByPK(id, null);
+			byte[] doc = (dto.getDoc() == null) ? new byte[0] : dto.getDoc();
+			entityManager.detach(dto);
+			try {
+				attachmentDao.updateHash(id, attachmentStore.put(doc));
+			} catch (IOException e) {
+				throw new IllegalStateException("Can not move attachment " + id, e);
+			}
+		}
+		return ids.size();
+	}
+
+	/**
+	 * Removes stored data not referenced by any attachment
+	 */
+	@Scheduled(initialDelayString = "${attachment.store.gc.ms:86400000}", fixedDelayString = "${attachment.store.gc.ms:86400000}")
+	public void collectGarbage() throws IOException {
+		long storedBefore = System.currentTimeMillis() - grace;
+		List<String> removed = new ArrayList<String>();
+		Set<String> batch = new HashSet<String>();
+		attachmentStore.scan(storedBefore, key -> {
+			batch.add(key);
+			if (batch.size() >= 500) {
+				removed.addAll(removeUnreferenced(batch, storedBefore));
+				batch.clear();
+			}
+		});
+		removed.addAll(removeUnreferenced(batch, storedBefore));
+		log.info("Unreferenced attachment data removed " + removed.size());
+	}
+
+	private List<String> removeUnreferenced(Set<String> keys, long storedBefore) {
+		Set<String> unreferenced = new HashSet<String>(keys);
+		unreferenced.removeAll(new TransactionTemplate(transactionManager)
+				.execute(status -> attachmentDao.findReferencedHashes(keys)));
+		List<String> removed = new ArrayList<String>();
+		for (String key : unreferenced) {
+			try {
+				if (attachmentStore.delete(key, storedBefore)) {
+					removed.add(key);
+				}
+			} catch (IOException e) {
+				log.warn("Can not remove attachment data " + key, e);
+			}
+		}
+		return removed;
+	}
+
+}
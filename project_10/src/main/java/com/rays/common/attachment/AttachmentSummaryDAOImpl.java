@@ -0,0 +1,64 @@
+package com.rays.common.attachment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.stereotype.Repository;
+
+import com.rays.common.BaseDAOImpl;
+
+/**
+ * Searches attachment metadata without reading file data.
+ */
+@Repository
+public class AttachmentSummaryDAOImpl extends BaseDAOImpl<AttachmentSummaryDTO> implements AttachmentSummaryDAOInt {
+
+	@Override
+	public Class<AttachmentSummaryDTO> getDTOClass() {
+		return AttachmentSummaryDTO.class;
+	}
+
+	@Override
+	protected List<Predicate> getWhereClause(AttachmentSummaryDTO dto, CriteriaBuilder builder,
+			Root<AttachmentSummaryDTO> qRoot) {
+
+		List<Predicate> whereCondition = new ArrayList<Predicate>();
+
+		if (!isEmptyString(dto.getName())) {
+
+			whereCondition.add(builder.like(qRoot.get("name"), dto.getName() + "%"));
+		}
+
+		if (!isEmptyString(dto.getDescription())) {
+
+			whereCondition.add(builder.like(qRoot.get("description"), "%" + dto.getDescription() + "%"));
+		}
+
+		if (!isEmptyString(dto.getTags())) {
+
+			whereCondition.add(builder.like(qRoot.get("tags"), "%" + dto.getTags() + "%"));
+		}
+
+		if (!isEmptyString(dto.getPath())) {
+
+			whereCondition.add(builder.like(qRoot.get("path"), dto.getPath() + "%"));
+		}
+
+		if (!isZeroNumber(dto.getUserId())) {
+
+			whereCondition.add(builder.equal(qRoot.get("userId"), dto.getUserId()));
+		}
+
+		if (!isZeroNumber(dto.getId())) {
+
+			whereCondition.add(builder.equal(qRoot.get("id"), dto.getId()));
+		}
+
+		return whereCondition;
+	}
+
+}
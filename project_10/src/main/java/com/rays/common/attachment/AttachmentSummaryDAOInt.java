@@ -0,0 +1,10 @@
+package com.rays.common.attachment;
+
+import com.rays.common.BaseDAOInt;
+
+/**
+ * Attachment metadata DAO interface. Records are read only.
+ */
+public interface AttachmentSummaryDAOInt extends BaseDAOInt<AttachmentSummaryDTO> {
+
+}
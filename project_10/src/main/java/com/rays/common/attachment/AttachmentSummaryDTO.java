@@ -3,13 +3,17 @@ package com.rays.common.attachment;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Immutable;
+
 /**
- * Contains attached file information and data
+ * Contains attached file information without its data. Maps ST_ATTACHMENT
+ * except DOC column so search and lookups do not read files into memory.
  *Dipanshi Mukati 
  */
 
 @Entity
-@Table(name = "NCS_ATTACHMENT")
+@Immutable
+@Table(name = "ST_ATTACHMENT")
 public class AttachmentSummaryDTO extends AttachmentBaseDTO {
 
-}
\ No newline at end of file
+}
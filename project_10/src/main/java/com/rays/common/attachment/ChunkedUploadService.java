@@ -0,0 +1,283 @@
+package com.rays.common.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rays.common.UserContext;
+
+/**
+ * Resumable uploads. A file is received in chunks into a temporary file of its
+ * full size, each chunk is written at its own offset so chunks can be sent in
+ * parallel. State of an upload is kept in a file next to it, an upload can be
+ * continued after a restart.
+ *
+ * When all chunks are received the file is saved through AttachmentServiceImpl
+ * like a single upload. Uploads not changed for attachment.upload.expire.ms are
+ * removed.
+ */
+@Component
+public class ChunkedUploadService {
+
+	private static final Pattern ID = Pattern.compile("[0-9a-f\\-]{36}");
+
+	private static final String STATE = ".json";
+
+	private static final String PART = ".part";
+
+	private static Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Map<String, UploadSession> sessions = new ConcurrentHashMap<String, UploadSession>();
+
+	@Autowired
+	private AttachmentServiceInt attachmentService;
+
+	private final Path dir;
+
+	@Value("${attachment.upload.chunk.size:5242880}")
+	private long chunkSize = 5242880;
+
+	@Value("${attachment.upload.max.size:1073741824}")
+	private long maxSize = 1073741824;
+
+	@Value("${attachment.upload.expire.ms:86400000}")
+	private long expire = 86400000;
+
+	public ChunkedUploadService(@Value("${attachment.upload.dir:${user.home}/ors/uploads}") String dir)
+			throws IOException {
+		this.dir = Paths.get(dir).toAbsolutePath();
+		Files.createDirectories(this.dir);
+	}
+
+	/**
+	 * Starts an upload
+	 *
+	 * @param session     name, type, size and description of file, id of
+	 *                    attachment to replace if any
+	 * @param userContext
+	 * @return session with its id and chunk size
+	 * @throws IOException
+	 */
+	public UploadSession start(UploadSession session, UserContext userContext) throws IOException {
+		if (session.getSize() < 0 || session.getSize() > maxSize) {
+			throw new IllegalArgumentException("File size must be between 0 and " + maxSize);
+		}
+		session.setId(UUID.randomUUID().toString());
+		session.setChunkSize(chunkSize);
+		session.setUserId(userContext.getUserId());
+		session.setReceivedChunks(new long[0]);
+
+		// chunks are written at their offsets, file has its full size from start
+		try (RandomAccessFile file = new RandomAccessFile(getPart(session.getId()).toFile(), "rw")) {
+			file.setLength(session.getSize());
+		}
+		saveState(session);
+		sessions.put(session.getId(), session);
+		return session;
+	}
+
+	/**
+	 * Finds upload of user
+	 *
+	 * @param id
+	 * @param userContext
+	 * @return null if upload does not exist, has expired or belongs to another
+	 *         user
+	 * @throws IOException
+	 */
+	public UploadSession find(String id, UserContext userContext) throws IOException {
+		if (id == null || !ID.matcher(id).matches()) {
+			return null;
+		}
+		UploadSession session = sessions.get(id);
+		if (session == null) {
+			Path state = getState(id);
+			if (!Files.exists(state)) {
+				return null;
+			}
+			session = sessions.computeIfAbsent(id, k -> readState(state));
+		}
+		// Upload without owner is not returned to anybody
+		if (session == null || session.getUserId() == null
+				|| !Objects.equals(session.getUserId(), userContext.getUserId())) {
+			return null;
+		}
+		return session;
+	}
+
+	/**
+	 * Writes a chunk. Data is copied from stream to file without being held in
+	 * memory.
+	 *
+	 * @param session
+	 * @param offset  position of chunk in file, a multiple of chunk size
+	 * @param in
+	 * @throws IOException
+	 */
+	public void write(UploadSession session, long offset, InputStream in) throws IOException {
+		if (offset < 0 || offset >= session.getSize() || offset % session.getChunkSize() != 0) {
+			throw new IllegalArgumentException("Invalid chunk offset " + offset);
+		}
+		long length = session.getChunkLength(offset);
+
+		try (FileChannel channel = FileChannel.open(getPart(session.getId()), StandardOpenOption.WRITE);
+				ReadableByteChannel source = Channels.newChannel(in)) {
+			long written = 0;
+			while (written < length) {
+				long n = channel.transferFrom(source, offset + written, length - written);
+				if (n <= 0) {
+					break;
+				}
+				written += n;
+			}
+			if (written != length) {
+				throw new IllegalArgumentException("Chunk at " + offset + " must have " + length + " bytes");
+			}
+		}
+
+		synchronized (session) {
+			if (sessions.get(session.getId()) != session) {
+				throw new IllegalStateException("Upload is completed already");
+			}
+			session.setReceived((int) (offset / session.getChunkSize()));
+			saveState(session);
+		}
+	}
+
+	/**
+	 * Saves uploaded file as attachment and removes upload
+	 *
+	 * @param session
+	 * @param userContext
+	 * @return id of attachment
+	 * @throws IOException
+	 */
+	public Long complete(UploadSession session, UserContext userContext) throws IOException {
+		synchronized (session) {
+			if (!session.isComplete()) {
+				throw new IllegalStateException("Upload is not complete");
+			}
+			if (sessions.remove(session.getId()) == null) {
+				throw new IllegalStateException("Upload is completed already");
+			}
+			// not found by other requests from now on
+			Files.deleteIfExists(getState(session.getId()));
+		}
+		AttachmentDTO dto = new AttachmentDTO();
+		dto.setId(session.getAttachmentId());
+		dto.setName(session.getName());
+		dto.setType(session.getType());
+		dto.setDescription(session.getDescription());
+		dto.setPath(session.getPath());
+		dto.setUserId(session.getUserId());
+		dto.setContent(new FileSystemResource(getPart(session.getId()).toFile()));
+		Long id;
+		try {
+			id = attachmentService.save(dto, userContext);
+		} catch (RuntimeException e) {
+			// can be completed again
+			saveState(session);
+			sessions.put(session.getId(), session);
+			throw e;
+		}
+		delete(session.getId());
+		return id;
+	}
+
+	/**
+	 * Removes upload and its data
+	 *
+	 * @param session
+	 * @throws IOException
+	 */
+	public void cancel(UploadSession session) throws IOException {
+		sessions.remove(session.getId());
+		delete(session.getId());
+	}
+
+	/**
+	 * Removes uploads not continued within expire.ms, and files left without an
+	 * upload
+	 */
+	@Scheduled(fixedDelayString = "${attachment.upload.sweep.ms:3600000}")
+	public void removeExpired() throws IOException {
+		long before = System.currentTimeMillis() - expire;
+		int count = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (Files.getLastModifiedTime(file).toMillis() >= before) {
+					continue;
+				}
+				if (name.endsWith(STATE)) {
+					String id = name.substring(0, name.length() - STATE.length());
+					sessions.remove(id);
+					delete(id);
+					count++;
+				} else if (!name.endsWith(PART)
+						|| !Files.exists(getState(name.substring(0, name.length() - PART.length())))) {
+					// left by an interrupted write or completion
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		if (count > 0) {
+			log.info("Expired uploads removed " + count);
+		}
+	}
+
+	private void delete(String id) throws IOException {
+		Files.deleteIfExists(getState(id));
+		Files.deleteIfExists(getPart(id));
+	}
+
+	private void saveState(UploadSession session) throws IOException {
+		Path temp = dir.resolve(session.getId() + STATE + ".tmp");
+		mapper.writeValue(temp.toFile(), session);
+		Files.move(temp, getState(session.getId()), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private UploadSession readState(Path state) {
+		try {
+			return mapper.readValue(state.toFile(), UploadSession.class);
+		} catch (IOException e) {
+			log.warn("Can not read upload " + state, e);
+			return null;
+		}
+	}
+
+	private Path getState(String id) {
+		return dir.resolve(id + STATE);
+	}
+
+	private Path getPart(String id) {
+		return dir.resolve(id + PART);
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.rays.common.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores attachment data as files under attachment.store.dir. File of key
+ * "ab12..." is ab/12/ab12..., so no directory holds too many files.
+ *
+ * Data is written to a temporary file while its hash is computed, then moved
+ * to its place. A reader never sees a partly written file. If the file exists
+ * already its time is refreshed, so it is not removed as unreferenced while
+ * the new attachment is being saved.
+ *
+ * Data derived from "ab12..." is ab/12/ab12....name, scan reports source data
+ * only.
+ */
+@Component
+public class FileSystemAttachmentStore implements AttachmentStore {
+
+	private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+	private static final Pattern DERIVATIVE_KEY = Pattern.compile("[0-9a-f]{64}(\\.[0-9a-z]+)?");
+
+	private static final String TEMP = "tmp";
+
+	private final Path root;
+
+	private final Path temp;
+
+	public FileSystemAttachmentStore(
+			@Value("${attachment.store.dir:${user.home}/ors/attachments}") String dir) throws IOException {
+		this.root = Paths.get(dir).toAbsolutePath();
+		this.temp = root.resolve(TEMP);
+		Files.createDirectories(temp);
+	}
+
+	public String put(InputStream in, String codec) throws IOException {
+		if (codec != null && !GZIP.equals(codec)) {
+			throw new IllegalArgumentException("Unsupported codec " + codec);
+		}
+		MessageDigest digest = newDigest();
+		Path file = Files.createTempFile(temp, "put", null);
+		try {
+			// hash is computed from data as it is written to file
+			OutputStream stored = new DigestOutputStream(Files.newOutputStream(file), digest);
+			try (OutputStream out = (codec == null) ? stored : new GZIPOutputStream(stored, 8192)) {
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+			}
+			String key = toHex(digest.digest());
+			Path target = getPath(key);
+			if (Files.exists(target)) {
+				Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+			} else {
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch (FileAlreadyExistsException e) {
+					// stored by another request meanwhile
+				}
+			}
+			return key;
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	public String putDerivative(String key, String name, InputStream in) throws IOException {
+		String derivative = getDerivativeKey(key, name);
+		Path target = getPath(derivative);
+		Path file = Files.createTempFile(temp, "derive", null);
+		try {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+			Files.createDirectories(target.getParent());
+			Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		if (!exists(key)) {
+			// source removed meanwhile
+			Files.deleteIfExists(target);
+			throw new IOException("Attachment data " + key + " does not exist");
+		}
+		return derivative;
+	}
+
+	public InputStream open(String key) throws IOException {
+		return Files.newInputStream(getPath(key));
+	}
+
+	public long size(String key) throws IOException {
+		return Files.size(getPath(key));
+	}
+
+	@Override
+	public Path getFile(String key) {
+		return getPath(key);
+	}
+
+	public boolean exists(String key) {
+		return Files.exists(getPath(key));
+	}
+
+	public boolean delete(String key, long storedBefore) throws IOException {
+		Path file = getPath(key);
+		if (!Files.exists(file) || Files.getLastModifiedTime(file).toMillis() >= storedBefore) {
+			return false;
+		}
+		boolean deleted = Files.deleteIfExists(file);
+		try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(file.getParent(), key + ".*")) {
+			for (Path derivative : derivatives) {
+				Files.deleteIfExists(derivative);
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Also removes temporary files of writes that did not complete
+	 */
+	public void scan(long storedBefore, Consumer<String> action) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(temp)) {
+			for (Path file : files) {
+				if (Files.getLastModifiedTime(file).toMillis() < storedBefore) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		try (Stream<Path> files = Files.walk(root, 3)) {
+			files.filter(f -> KEY.matcher(f.getFileName().toString()).matches()).forEach(f -> {
+				try {
+					if (Files.getLastModifiedTime(f).toMillis() < storedBefore) {
+						action.accept(f.getFileName().toString());
+					}
+				} catch (IOException e) {
+					// deleted meanwhile
+				}
+			});
+		}
+	}
+
+	/**
+	 * Path of data, key is checked so it can not point out of root directory.
+	 * Derived data is in the directory of its source.
+	 *
+	 * @param key
+	 * @return
+	 */
+	protected Path getPath(String key) {
+		if (key == null || !DERIVATIVE_KEY.matcher(key).matches()) {
+			throw new IllegalArgumentException("Invalid attachment key " + key);
+		}
+		return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.rays.common.attachment;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.rays.common.LocalCache;
+
+/**
+ * Smaller copies of pictures, kept in AttachmentStore next to the original.
+ *
+ * Requested size is rounded up to one of attachment.thumbnail.sizes, the
+ * picture is scaled to fit a square of that size. A missing copy is made by a
+ * pool of attachment.thumbnail.threads threads, the request is answered with
+ * the original meanwhile so request threads never wait for resizing. When
+ * the queue is full nothing is made, a later request asks again.
+ */
+@Component
+public class ThumbnailService {
+
+	private static Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+	private static final String JPEG = "image/jpeg";
+
+	private static final String PNG = "image/png";
+
+	@Autowired
+	private AttachmentStore attachmentStore;
+
+	private final int[] sizes;
+
+	@Value("${attachment.thumbnail.max.pixels:50000000}")
+	private long maxPixels = 50000000;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Derivatives being made
+	 */
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Data that could not be read as a picture, not tried again for an hour
+	 */
+	private final LocalCache<String, Boolean> failed = new LocalCache<String, Boolean>(1000, 3600000);
+
+	public ThumbnailService(@Value("${attachment.thumbnail.sizes:40,80,160,320}") int[] sizes,
+			@Value("${attachment.thumbnail.threads:2}") int threads,
+			@Value("${attachment.thumbnail.queue:100}") int queue) {
+		this.sizes = sizes.clone();
+		Arrays.sort(this.sizes);
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queue), r -> {
+					Thread thread = new Thread(r, "thumbnail-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					thread.setPriority(Thread.NORM_PRIORITY - 1);
+					return thread;
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Key of a copy of picture for requested size. If it is not made yet it is
+	 * queued, null is returned.
+	 *
+	 * @param dto  attachment information
+	 * @param size requested width and height in pixels
+	 * @return null if original is to be sent
+	 */
+	public String find(AttachmentBaseDTO dto, int size) {
+		size = getSize(size);
+		if (size == 0 || dto.getHash() == null || dto.getCodec() != null || dto.getType() == null
+				|| !dto.getType().startsWith("image/")) {
+			return null;
+		}
+		String key = attachmentStore.getDerivativeKey(dto.getHash(), getName(size));
+		if (attachmentStore.exists(key)) {
+			return key;
+		}
+		if (failed.get(dto.getHash()) == null) {
+			submit(dto.getHash(), dto.getType(), size, key);
+		}
+		return null;
+	}
+
+	/**
+	 * MIME type of copies of a picture, PNG keeps transparency of PNG and GIF
+	 *
+	 * @param type MIME type of original
+	 * @return
+	 */
+	public String getType(String type) {
+		return (PNG.equals(type) || "image/gif".equals(type)) ? PNG : JPEG;
+	}
+
+	/**
+	 * Smallest configured size not less than requested
+	 *
+	 * @param size
+	 * @return 0 if requested size is larger than all
+	 */
+	public int getSize(int size) {
+		if (size <= 0) {
+			return 0;
+		}
+		for (int s : sizes) {
+			if (s >= size) {
+				return s;
+			}
+		}
+		return 0;
+	}
+
+	private void submit(String hash, String type, int size, String key) {
+		if (!pending.add(key)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					make(hash, type, size);
+				} catch (Exception e) {
+					failed.put(hash, Boolean.TRUE);
+					log.warn("Can not resize attachment data " + hash + ": " + e.getMessage());
+				} finally {
+					pending.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pending.remove(key);
+		}
+	}
+
+	/**
+	 * Makes and stores copy of picture
+	 *
+	 * @param hash
+	 * @param type MIME type of original
+	 * @param size
+	 * @return key of copy
+	 * @throws IOException
+	 */
+	public String make(String hash, String type, int size) throws IOException {
+		BufferedImage image;
+		try (InputStream in = attachmentStore.open(hash); ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+			image = read(iis, size);
+		}
+		String format = getType(type);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(resize(image, size, PNG.equals(format)), format, out);
+		return attachmentStore.putDerivative(hash, getName(size), new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	/**
+	 * Decodes picture. Size is checked before pixels are read, a large picture
+	 * is read skipping rows and columns so it needs little more memory than
+	 * twice the requested size.
+	 */
+	private BufferedImage read(ImageInputStream iis, int size) throws IOException {
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+		if (!readers.hasNext()) {
+			throw new IOException("Not a supported picture");
+		}
+		ImageReader reader = readers.next();
+		try {
+			reader.setInput(iis, true, true);
+			int width = reader.getWidth(0);
+			int height = reader.getHeight(0);
+			if ((long) width * height > maxPixels) {
+				throw new IOException("Picture of " + width + "x" + height + " is too large");
+			}
+			ImageReadParam param = reader.getDefaultReadParam();
+			int step = Math.max(1, Math.max(width, height) / (size * 2));
+			param.setSourceSubsampling(step, step, 0, 0);
+			return reader.read(0, param);
+		} finally {
+			reader.dispose();
+		}
+	}
+
+	/**
+	 * Scales picture to fit a square of given size, halving it in steps so
+	 * bilinear scaling does not lose detail. Pictures are never enlarged.
+	 */
+	private static BufferedImage resize(BufferedImage image, int size, boolean alpha) {
+		double scale = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+		BufferedImage current = image;
+		int w = image.getWidth();
+		int h = image.getHeight();
+		do {
+			w = Math.max(w / 2, width);
+			h = Math.max(h / 2, height);
+			BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = next.createGraphics();
+			try {
+				if (!alpha) {
+					g.setColor(Color.WHITE);
+					g.fillRect(0, 0, w, h);
+				}
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.drawImage(current, 0, 0, w, h, null);
+			} finally {
+				g.dispose();
+			}
+			current = next;
+		} while (w != width || h != height);
+		return current;
+	}
+
+	private static void write(BufferedImage image, String format, ByteArrayOutputStream out) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByMIMEType(format).next();
+		try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(ios);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (JPEG.equals(format)) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(0.85f);
+			}
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static String getName(int size) {
+		return "t" + size;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.rays.common.attachment;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * State of a chunked upload. File is sent in chunks of chunkSize bytes, the
+ * last one may be shorter. Chunks may arrive in any order and more than once.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadSession {
+
+	private String id = null;
+
+	private String name = null;
+
+	private String type = null;
+
+	private String description = null;
+
+	private String path = null;
+
+	/**
+	 * Attachment to be replaced, null for a new attachment
+	 */
+	private Long attachmentId = null;
+
+	/**
+	 * User who started upload, only this user may continue it
+	 */
+	private Long userId = null;
+
+	private long size = 0;
+
+	private long chunkSize = 0;
+
+	@JsonIgnore
+	private BitSet received = new BitSet();
+
+	public int getChunkCount() {
+		return (int) ((size + chunkSize - 1) / chunkSize);
+	}
+
+	/**
+	 * Length of chunk starting at offset
+	 *
+	 * @param offset
+	 * @return
+	 */
+	public long getChunkLength(long offset) {
+		return Math.min(chunkSize, size - offset);
+	}
+
+	@JsonIgnore
+	public boolean isComplete() {
+		return received.cardinality() == getChunkCount();
+	}
+
+	public long getReceivedBytes() {
+		long bytes = 0;
+		for (int i = received.nextSetBit(0); i >= 0; i = received.nextSetBit(i + 1)) {
+			bytes += getChunkLength(i * chunkSize);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Offsets of chunks not received yet
+	 *
+	 * @return
+	 */
+	public List<Long> getMissing() {
+		List<Long> list = new ArrayList<Long>();
+		for (int i = received.nextClearBit(0); i < getChunkCount(); i = received.nextClearBit(i + 1)) {
+			list.add(i * chunkSize);
+		}
+		return list;
+	}
+
+	public void setReceived(int chunk) {
+		received.set(chunk);
+	}
+
+	/**
+	 * Received chunks as bit set words, used to keep state in a file
+	 */
+	public long[] getReceivedChunks() {
+		return received.toLongArray();
+	}
+
+	public void setReceivedChunks(long[] words) {
+		this.received = BitSet.valueOf(words);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public Long getAttachmentId() {
+		return attachmentId;
+	}
+
+	public void setAttachmentId(Long attachmentId) {
+		this.attachmentId = attachmentId;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(Long userId) {
+		this.userId = userId;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(long chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+}
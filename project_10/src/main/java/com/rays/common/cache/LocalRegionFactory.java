@@ -0,0 +1,72 @@
+package com.rays.common.cache;
+
+import java.util.Map;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import com.rays.common.LocalCache;
+
+/**
+ * In-process second level cache of Hibernate. Each region is a LocalCache
+ * bounded by number of entries and time to live, configured with
+ * 
+ * <pre>
+ * hibernate.cache.local.size / hibernate.cache.local.ttl            defaults
+ * hibernate.cache.local.&lt;region&gt;.size / .ttl                        one region
+ * </pre>
+ * 
+ * Update timestamps region is never bounded, a lost timestamp would let query
+ * cache return stale results.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+	public static final String PREFIX = "hibernate.cache.local.";
+
+	private Map configValues = null;
+
+	@Override
+	protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+		this.configValues = configValues;
+	}
+
+	@Override
+	protected void releaseFromUse() {
+		configValues = null;
+	}
+
+	@Override
+	protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+			DomainDataRegionBuildingContext buildingContext) {
+		return createStorageAccess(regionConfig.getRegionName());
+	}
+
+	@Override
+	protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+			SessionFactoryImplementor sessionFactory) {
+		return createStorageAccess(regionName);
+	}
+
+	@Override
+	protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+			SessionFactoryImplementor sessionFactory) {
+		return new LocalStorageAccess(new LocalCache<Object, Object>(Integer.MAX_VALUE, 0));
+	}
+
+	private LocalStorageAccess createStorageAccess(String regionName) {
+		int size = (int) getLong(regionName + ".size", getLong("size", 1000));
+		long ttl = getLong(regionName + ".ttl", getLong("ttl", 600000));
+		return new LocalStorageAccess(new LocalCache<Object, Object>(size, ttl));
+	}
+
+	private long getLong(String key, long defaultValue) {
+		Object value = (configValues == null) ? null : configValues.get(PREFIX + key);
+		return (value == null) ? defaultValue : Long.parseLong(value.toString().trim());
+	}
+
+}
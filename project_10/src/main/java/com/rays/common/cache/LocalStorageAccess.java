@@ -0,0 +1,49 @@
+package com.rays.common.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import com.rays.common.LocalCache;
+
+/**
+ * Keeps entries of one Hibernate cache region in a LocalCache
+ */
+public class LocalStorageAccess implements DomainDataStorageAccess {
+
+	private final LocalCache<Object, Object> cache;
+
+	public LocalStorageAccess(LocalCache<Object, Object> cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+		return cache.get(key);
+	}
+
+	@Override
+	public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+		cache.put(key, value);
+	}
+
+	@Override
+	public boolean contains(Object key) {
+		return cache.get(key) != null;
+	}
+
+	@Override
+	public void evictData() {
+		cache.clear();
+	}
+
+	@Override
+	public void evictData(Object key) {
+		cache.remove(key);
+	}
+
+	@Override
+	public void release() {
+		cache.clear();
+	}
+
+}
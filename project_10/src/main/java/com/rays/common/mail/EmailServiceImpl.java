@@ -1,6 +1,8 @@
 package com.rays.common.mail;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 import java.util.Iterator;
 
@@ -13,9 +15,10 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 
 import com.rays.common.UserContext;
-import com.rays.common.attachment.AttachmentDTO;
+import com.rays.common.attachment.AttachmentSummaryDTO;
 import com.rays.common.attachment.AttachmentServiceInt;
 import com.rays.common.message.MessageDTO;
 import com.rays.common.message.MessageServiceInt;
@@ -116,14 +119,16 @@ public class EmailServiceImpl {
 			Iterator<Long> itid = dto.getAttachedFileId().iterator();
 			while (itid.hasNext()) {
 				Long id = itid.next();
-				AttachmentDTO fileDto = attachmentService.findById(id, ctx);
+				AttachmentSummaryDTO fileDto = attachmentService.findSummaryById(id, ctx);
 				if (fileDto != null) {
-					ByteArrayResource file = new ByteArrayResource(fileDto.getDoc());
-					helper.addAttachment(fileDto.getName(), file);
+					try (InputStream in = attachmentService.openContent(fileDto, ctx)) {
+						ByteArrayResource file = new ByteArrayResource(StreamUtils.copyToByteArray(in));
+						helper.addAttachment(fileDto.getName(), file);
+					}
 				}
 			}
 
-		} catch (MessagingException e) {
+		} catch (MessagingException | IOException e) {
 			e.printStackTrace();
 		}
 
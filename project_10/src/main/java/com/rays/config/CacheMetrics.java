@@ -0,0 +1,107 @@
+package com.rays.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.rays.common.BaseDAOImpl;
+import com.rays.common.LocalCache;
+import com.rays.common.ReferenceDataCache;
+import com.rays.common.attachment.AttachmentCache;
+import com.rays.service.JWTUserDetailsService;
+import com.rays.service.UserServiceImpl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes hit and miss counts of in-process caches to actuator metrics
+ * endpoint (/actuator/metrics/ors.cache.gets), and memory used by attachment
+ * cache (ors.cache.bytes).
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+	@Autowired(required = false)
+	private List<BaseDAOImpl<?>> daos = new ArrayList<BaseDAOImpl<?>>();
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private JWTUserDetailsService jwtUserDetailsService;
+
+	@Autowired
+	private JWTUtil jwtUtil;
+
+	@Autowired
+	private UserServiceImpl userService;
+
+	@Autowired
+	private AttachmentCache attachmentCache;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+
+		FunctionCounter.builder("ors.cache.gets", daos, l -> {
+			long count = 0;
+			for (BaseDAOImpl<?> dao : l) {
+				count += dao.getTemplateCache().getHitCount();
+			}
+			return count;
+		}).tag("cache", "queryTemplate").tag("result", "hit").register(registry);
+
+		FunctionCounter.builder("ors.cache.gets", daos, l -> {
+			long count = 0;
+			for (BaseDAOImpl<?> dao : l) {
+				count += dao.getTemplateCache().getMissCount();
+			}
+			return count;
+		}).tag("cache", "queryTemplate").tag("result", "miss").register(registry);
+
+		Gauge.builder("ors.cache.size", daos, l -> {
+			long size = 0;
+			for (BaseDAOImpl<?> dao : l) {
+				size += dao.getTemplateCache().size();
+			}
+			return size;
+		}).tag("cache", "queryTemplate").register(registry);
+
+		bind(registry, "referenceData", referenceDataCache.getCache());
+		bind(registry, "principal", jwtUserDetailsService.getCache());
+		bind(registry, "jwtClaims", jwtUtil.getClaimsCache());
+		bind(registry, "userImage", userService.getImageIdCache());
+
+		FunctionCounter.builder("ors.cache.gets", attachmentCache, c -> c.getHitCount()).tag("cache", "attachment")
+				.tag("result", "hit").register(registry);
+		FunctionCounter.builder("ors.cache.gets", attachmentCache, c -> c.getMissCount()).tag("cache", "attachment")
+				.tag("result", "miss").register(registry);
+		FunctionCounter.builder("ors.cache.evictions", attachmentCache, c -> c.getEvictionCount())
+				.tag("cache", "attachment").register(registry);
+		Gauge.builder("ors.cache.size", attachmentCache, c -> c.size()).tag("cache", "attachment").register(registry);
+		Gauge.builder("ors.cache.bytes", attachmentCache, c -> c.getHeapWeight()).tag("cache", "attachment")
+				.tag("tier", "heap").baseUnit("bytes").register(registry);
+		Gauge.builder("ors.cache.bytes", attachmentCache, c -> c.getOffHeapWeight()).tag("cache", "attachment")
+				.tag("tier", "offheap").baseUnit("bytes").register(registry);
+	}
+
+	/**
+	 * Publishes hit, miss and size of a cache
+	 * 
+	 * @param registry
+	 * @param name
+	 * @param cache
+	 */
+	private void bind(MeterRegistry registry, String name, LocalCache<?, ?> cache) {
+		FunctionCounter.builder("ors.cache.gets", cache, c -> c.getHitCount()).tag("cache", name).tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("ors.cache.gets", cache, c -> c.getMissCount()).tag("cache", name)
+				.tag("result", "miss").register(registry);
+		Gauge.builder("ors.cache.size", cache, c -> c.size()).tag("cache", name).register(registry);
+	}
+
+}
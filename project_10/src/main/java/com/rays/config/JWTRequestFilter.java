@@ -10,12 +10,15 @@ import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.rays.service.JWTUserDetailsService;
+import com.rays.common.UserContext;
+
+import io.jsonwebtoken.Claims;
 
 @Component
 public class JWTRequestFilter extends OncePerRequestFilter {
@@ -24,7 +27,7 @@ public class JWTRequestFilter extends OncePerRequestFilter {
 	private JWTUtil jwtUtil;
 
 	@Autowired
-	private JWTUserDetailsService jwtUserDetailsService;
+	private TokenRevocation tokenRevocation;
 
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -39,16 +42,20 @@ public class JWTRequestFilter extends OncePerRequestFilter {
 			String jwtToken = authorizationHeader.substring(7);
 
 			try {
-				if (!jwtUtil.validateToken(jwtToken)) {
-					
-					throw new Exception("Invalid JWT token");
+				// Token is parsed and verified once, user context comes from its claims
+				Claims claims = jwtUtil.getClaims(jwtToken);
+				if (JWTUtil.REFRESH.equals(claims.get(JWTUtil.TYPE)) || tokenRevocation.isRevoked(claims)) {
+					throw new Exception("Token is revoked");
 				}
+				UserContext userContext = jwtUtil.getUserContext(claims);
+				request.setAttribute(UserContext.REQUEST_ATTRIBUTE, userContext);
 
-				String username = jwtUtil.extractUsername(jwtToken);
+				String username = claims.getSubject();
 
 				if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-					UserDetails userDetails = jwtUserDetailsService.loadUserByUsername(username);
+					// Principal comes from the verified token, no user lookup per request
+					UserDetails userDetails = User.builder().username(username).password("").roles("USER").build();
 
 					UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
 							userDetails, null, userDetails.getAuthorities());
@@ -1,11 +1,22 @@
 package com.rays.config;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
 import java.util.function.Function;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.rays.common.LocalCache;
+import com.rays.common.UserContext;
+import com.rays.dto.UserDTO;
+
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -13,25 +24,109 @@ import io.jsonwebtoken.SignatureAlgorithm;
 @Component
 public class JWTUtil {
 
+    public static final String USER_ID = "userId";
+    public static final String NAME = "name";
+    public static final String ROLE_ID = "roleId";
+    public static final String ROLE_NAME = "roleName";
+    public static final String ORG_ID = "orgId";
+    public static final String ORG_NAME = "orgName";
+    public static final String SESSION_ID = "sid";
+    public static final String TYPE = "typ";
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    // Generate token from username
-    public String generateToken(String username) {
+    @Value("${jwt.refresh.expiration:604800000}")
+    private long refreshExpiration = 604800000;
+
+    // Maximum number of cached verified tokens
+    @Value("${jwt.cache.size:10000}")
+    private int cacheSize = 10000;
+
+    // Verified claims by SHA-256 digest of token, an entry expires with its token
+    private LocalCache<String, Claims> claimsCache = null;
+
+    @PostConstruct
+    public void initCache() {
+        claimsCache = new LocalCache<String, Claims>(cacheSize, 0);
+    }
+
+    // Generate access token of a login session, claims carry user context so requests need no lookup
+    public String generateToken(UserDTO dto, String sessionId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(dto.getLoginId())
+                .setId(UUID.randomUUID().toString())
+                .claim(TYPE, ACCESS)
+                .claim(SESSION_ID, sessionId)
+                .claim(USER_ID, dto.getId())
+                .claim(NAME, dto.getName())
+                .claim(ROLE_ID, dto.getRoleId())
+                .claim(ROLE_NAME, dto.getRoleName())
+                .claim(ORG_ID, dto.getOrgId())
+                .claim(ORG_NAME, dto.getOrgName())
+                .setIssuedAt(now)
+                .setExpiration(expiryDate)
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
+    }
+
+    // Generate refresh token of a login session, it is exchanged once for new tokens
+    public String generateRefreshToken(UserDTO dto, String sessionId) {
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + refreshExpiration);
+
+        return Jwts.builder()
+                .setSubject(dto.getLoginId())
+                .setId(UUID.randomUUID().toString())
+                .claim(TYPE, REFRESH)
+                .claim(SESSION_ID, sessionId)
+                .claim(USER_ID, dto.getId())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
                 .compact();
     }
 
+    // New login session id
+    public String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    // Expiry of refresh tokens issued now, revocations are kept until then
+    public Date getRefreshExpiry() {
+        return new Date(System.currentTimeMillis() + refreshExpiration);
+    }
+
+    // Build user context from verified claims, tokens without user claims are rejected
+    public UserContext getUserContext(Claims claims) {
+        if (claims.get(USER_ID) == null) {
+            throw new IllegalArgumentException("Token does not contain user context");
+        }
+        UserContext context = new UserContext();
+        context.setLoginId(claims.getSubject());
+        context.setUserId(getLong(claims, USER_ID));
+        context.setName(claims.get(NAME, String.class));
+        context.setDefaultRoleId(getLong(claims, ROLE_ID));
+        context.setRoleName(claims.get(ROLE_NAME, String.class));
+        context.setOrgId(getLong(claims, ORG_ID));
+        context.setOrgName(claims.get(ORG_NAME, String.class));
+        return context;
+    }
+
+    // Numbers are parsed as Integer or Long depending on their size
+    private Long getLong(Claims claims, String name) {
+        Number value = claims.get(name, Number.class);
+        return (value == null) ? null : value.longValue();
+    }
+
     // Validate the token
     public boolean validateToken(String token) {
         try {
@@ -63,11 +158,34 @@ public class JWTUtil {
         return resolver.apply(claims);
     }
 
-    // Internal: Get claims from token
-    private Claims getClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+    // Get verified claims of token, throws exception if token is invalid or expired.
+    // Signature of a token is verified once, later calls read claims from cache.
+    public Claims getClaims(String token) {
+        String key = digest(token);
+        Claims claims = claimsCache.get(key);
+        if (claims == null) {
+            claims = Jwts.parser()
+                    .setSigningKey(jwtSecret)
+                    .parseClaimsJws(token)
+                    .getBody();
+            if (claims.getExpiration() != null) {
+                claimsCache.put(key, claims, claims.getExpiration().getTime());
+            }
+        }
+        return claims;
+    }
+
+    public LocalCache<String, Claims> getClaimsCache() {
+        return claimsCache;
+    }
+
+    // Cache key of token, tokens are not kept in memory
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.rays.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Token buckets limiting login and forgot password attempts per client IP and
+ * per login id. Buckets are updated with compare and set, no lock is held.
+ *
+ * A bucket that has refilled completely holds no information and is removed
+ * by a periodic sweep. Number of buckets of each kind is bounded, when it is
+ * reached attempts of new keys of that kind are taken from a fixed array of
+ * shared buckets picked by hash of key. Every attempt is counted, keys
+ * sharing a bucket are only limited together. Kinds do not share room, so a
+ * client inventing login ids still gets its IP bucket and stays limited by
+ * it.
+ *
+ * Rejected attempts and attempts taken from shared buckets are published as
+ * ors.login.throttled and ors.login.throttle.shared metrics.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+	public static final String IP = "ip";
+
+	public static final String LOGIN = "login";
+
+	public static final String FORGOT_PASSWORD = "fp";
+
+	private final Limit ipLimit;
+
+	private final Limit loginLimit;
+
+	private final Limit forgotPasswordLimit;
+
+	private final int maxSize;
+
+	/**
+	 * Maximum number of shared buckets of each kind
+	 */
+	private static final int SHARED_SIZE = 1024;
+
+	public LoginThrottle(@Value("${login.throttle.ip.capacity:20}") int ipCapacity,
+			@Value("${login.throttle.ip.refill.ms:3000}") long ipRefill,
+			@Value("${login.throttle.login.capacity:5}") int loginCapacity,
+			@Value("${login.throttle.login.refill.ms:60000}") long loginRefill,
+			@Value("${login.throttle.fp.capacity:3}") int fpCapacity,
+			@Value("${login.throttle.fp.refill.ms:600000}") long fpRefill,
+			@Value("${login.throttle.size:100000}") int maxSize) {
+		int sharedSize = Math.max(1, Math.min(maxSize, SHARED_SIZE));
+		this.ipLimit = new Limit(IP, ipCapacity, ipRefill, sharedSize);
+		this.loginLimit = new Limit(LOGIN, loginCapacity, loginRefill, sharedSize);
+		this.forgotPasswordLimit = new Limit(FORGOT_PASSWORD, fpCapacity, fpRefill, sharedSize);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Takes a login attempt from buckets of client IP and login id
+	 *
+	 * @param ip
+	 * @param loginId
+	 * @return false if attempt must be rejected
+	 */
+	public boolean tryLogin(String ip, String loginId) {
+		return tryAcquire(ipLimit, ip) && tryAcquire(loginLimit, loginId);
+	}
+
+	/**
+	 * Takes a forgot password attempt from buckets of client IP and login id
+	 *
+	 * @param ip
+	 * @param loginId
+	 * @return false if attempt must be rejected
+	 */
+	public boolean tryForgotPassword(String ip, String loginId) {
+		return tryAcquire(ipLimit, ip) && tryAcquire(forgotPasswordLimit, loginId);
+	}
+
+	private boolean tryAcquire(Limit limit, String key) {
+		if (key == null) {
+			key = "";
+		}
+		String bucketKey = key.toLowerCase();
+		Bucket bucket = limit.buckets.get(bucketKey);
+		if (bucket == null) {
+			if (limit.buckets.size() >= maxSize) {
+				limit.sharedAttempts.increment();
+				bucket = limit.shared[(bucketKey.hashCode() & Integer.MAX_VALUE) % limit.shared.length];
+			} else {
+				bucket = limit.buckets.computeIfAbsent(bucketKey, k -> new Bucket(limit));
+			}
+		}
+		if (bucket.tryConsume(System.currentTimeMillis())) {
+			return true;
+		}
+		limit.rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Removes buckets that have refilled completely
+	 */
+	@Scheduled(fixedDelayString = "${login.throttle.sweep.ms:60000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		for (Limit limit : getLimits()) {
+			limit.buckets.values().removeIf(b -> b.isFull(now));
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Limit limit : getLimits()) {
+			size += limit.buckets.size();
+		}
+		return size;
+	}
+
+	private Limit[] getLimits() {
+		return new Limit[] { ipLimit, loginLimit, forgotPasswordLimit };
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (Limit limit : getLimits()) {
+			FunctionCounter.builder("ors.login.throttled", limit.rejected, LongAdder::sum).tag("key", limit.name)
+					.register(registry);
+			FunctionCounter.builder("ors.login.throttle.shared", limit.sharedAttempts, LongAdder::sum)
+					.tag("key", limit.name).register(registry);
+			Gauge.builder("ors.login.throttle.buckets", limit.buckets, Map::size).tag("key", limit.name)
+					.register(registry);
+		}
+	}
+
+	/**
+	 * Size and refill rate of buckets of one kind
+	 */
+	private static class Limit {
+
+		private final String name;
+
+		private final int capacity;
+
+		/**
+		 * Milliseconds to add one token
+		 */
+		private final long refillMillis;
+
+		private final LongAdder rejected = new LongAdder();
+
+		/**
+		 * Attempts taken from shared buckets because maximum number of buckets
+		 * was reached
+		 */
+		private final LongAdder sharedAttempts = new LongAdder();
+
+		private final Map<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+		private final Bucket[] shared;
+
+		Limit(String name, int capacity, long refillMillis, int sharedSize) {
+			this.name = name;
+			this.capacity = capacity;
+			this.refillMillis = Math.max(refillMillis, 1);
+			this.shared = new Bucket[sharedSize];
+			for (int i = 0; i < sharedSize; i++) {
+				shared[i] = new Bucket(this);
+			}
+		}
+	}
+
+	private static class Bucket {
+
+		private final Limit limit;
+
+		/**
+		 * Tokens at time of last attempt
+		 */
+		private final AtomicReference<State> state;
+
+		Bucket(Limit limit) {
+			this.limit = limit;
+			this.state = new AtomicReference<State>(new State(limit.capacity, System.currentTimeMillis()));
+		}
+
+		boolean tryConsume(long now) {
+			while (true) {
+				State current = state.get();
+				double tokens = current.tokensAt(now, limit);
+				if (tokens < 1) {
+					return false;
+				}
+				if (state.compareAndSet(current, new State(tokens - 1, Math.max(now, current.time)))) {
+					return true;
+				}
+			}
+		}
+
+		boolean isFull(long now) {
+			return state.get().tokensAt(now, limit) >= limit.capacity;
+		}
+	}
+
+	private static class State {
+
+		private final double tokens;
+
+		private final long time;
+
+		State(double tokens, long time) {
+			this.tokens = tokens;
+			this.time = time;
+		}
+
+		double tokensAt(long now, Limit limit) {
+			double refill = (double) Math.max(now - time, 0) / limit.refillMillis;
+			return Math.min(limit.capacity, tokens + refill);
+		}
+	}
+
+}
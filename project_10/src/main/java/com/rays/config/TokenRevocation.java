@@ -0,0 +1,253 @@
+package com.rays.config;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rays.common.BloomFilter;
+import com.rays.common.LocalCache;
+import com.rays.dto.RevokedTokenDTO;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Revoked login sessions and tokens, kept in ST_REVOKED_TOKEN.
+ *
+ * Requests check a Bloom filter of revoked ids in memory, only ids it may
+ * contain are looked up in the table. Users whose tokens are all revoked are
+ * kept in a map with time of revocation. Rows added by other instances are
+ * loaded every reload.ms, expired rows are deleted every purge.ms.
+ */
+@Component
+public class TokenRevocation {
+
+	private static final String USER_PREFIX = "user:";
+
+	/**
+	 * Rows revoked this long before last reload are read again, covers clock
+	 * difference of instances and transactions committed late
+	 */
+	private static final long RELOAD_OVERLAP = 60000;
+
+	private static Logger log = LoggerFactory.getLogger(TokenRevocation.class);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${jwt.refresh.expiration:604800000}")
+	private long refreshExpiration = 604800000;
+
+	@Value("${jwt.revocation.bloom.bits:1048576}")
+	private int bloomBits = 1048576;
+
+	@Value("${jwt.revocation.bloom.hashes:5}")
+	private int bloomHashes = 5;
+
+	private volatile BloomFilter filter = null;
+
+	/**
+	 * Revocation time of all tokens of users, in epoch seconds
+	 */
+	private volatile Map<Long, Long> users = new ConcurrentHashMap<Long, Long>();
+
+	/**
+	 * Result of table lookups of ids matched by filter
+	 */
+	private final LocalCache<String, Boolean> confirmed = new LocalCache<String, Boolean>(10000, 0);
+
+	private volatile long lastLoaded = 0;
+
+	/**
+	 * True if token is revoked by its session, its id or its user
+	 *
+	 * @param claims verified claims
+	 * @return
+	 */
+	public boolean isRevoked(Claims claims) {
+		Long userId = (claims.get(JWTUtil.USER_ID) == null) ? null
+				: claims.get(JWTUtil.USER_ID, Number.class).longValue();
+		if (userId != null && claims.getIssuedAt() != null) {
+			Long revokedAt = users.get(userId);
+			if (revokedAt != null && claims.getIssuedAt().getTime() / 1000 < revokedAt) {
+				return true;
+			}
+		}
+		return isRevoked(claims.get(JWTUtil.SESSION_ID, String.class)) || isRevoked(claims.getId());
+	}
+
+	/**
+	 * True if session or token id is revoked
+	 *
+	 * @param id
+	 * @return
+	 */
+	public boolean isRevoked(String id) {
+		if (id == null || filter == null || !filter.mightContain(id)) {
+			return false;
+		}
+		Boolean revoked = confirmed.get(id);
+		if (revoked == null) {
+			revoked = new TransactionTemplate(transactionManager)
+					.execute(status -> entityManager.find(RevokedTokenDTO.class, id) != null);
+			confirmed.put(id, revoked);
+		}
+		return revoked;
+	}
+
+	/**
+	 * Revokes tokens of a login session, or a single token
+	 *
+	 * @param id        session id or token id
+	 * @param userId
+	 * @param expiresAt time after which revoked tokens are expired anyway
+	 */
+	public void revoke(String id, Long userId, Date expiresAt) {
+		if (id == null) {
+			return;
+		}
+		RevokedTokenDTO dto = new RevokedTokenDTO();
+		dto.setTokenId(id);
+		dto.setUserId(userId);
+		dto.setRevokedAt(new Timestamp(System.currentTimeMillis()));
+		dto.setExpiresAt(new Timestamp(expiresAt.getTime()));
+		save(dto);
+
+		if (filter != null) {
+			filter.add(id);
+		}
+		confirmed.put(id, true);
+	}
+
+	/**
+	 * Marks a single use token used. Its row is inserted, not merged, so of
+	 * concurrent calls for the same token only one succeeds; the others fail
+	 * on the duplicate key.
+	 *
+	 * @param id        token id
+	 * @param userId
+	 * @param expiresAt time after which token is expired anyway
+	 * @return false if token was used already
+	 */
+	public boolean use(String id, Long userId, Date expiresAt) {
+		RevokedTokenDTO dto = new RevokedTokenDTO();
+		dto.setTokenId(id);
+		dto.setUserId(userId);
+		dto.setRevokedAt(new Timestamp(System.currentTimeMillis()));
+		dto.setExpiresAt(new Timestamp(expiresAt.getTime()));
+
+		boolean used = false;
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				entityManager.persist(dto);
+				return null;
+			});
+		} catch (DataIntegrityViolationException e) {
+			used = true;
+		}
+
+		if (filter != null) {
+			filter.add(id);
+		}
+		confirmed.put(id, true);
+		return !used;
+	}
+
+	/**
+	 * Revokes all tokens of a user issued until now
+	 *
+	 * @param userId
+	 */
+	public void revokeUser(Long userId) {
+		long now = System.currentTimeMillis();
+		RevokedTokenDTO dto = new RevokedTokenDTO();
+		dto.setTokenId(USER_PREFIX + userId);
+		dto.setUserId(userId);
+		dto.setRevokedAt(new Timestamp(now));
+		dto.setExpiresAt(new Timestamp(now + refreshExpiration));
+		save(dto);
+
+		users.put(userId, now / 1000 + 1);
+	}
+
+	private void save(RevokedTokenDTO dto) {
+		new TransactionTemplate(transactionManager).execute(status -> entityManager.merge(dto));
+	}
+
+	/**
+	 * Reads rows added since last reload, by this or other instances
+	 */
+	@Scheduled(initialDelayString = "${jwt.revocation.reload.ms:30000}", fixedDelayString = "${jwt.revocation.reload.ms:30000}")
+	public void reload() {
+		BloomFilter current = filter;
+		if (current == null) {
+			return;
+		}
+		long from = lastLoaded - RELOAD_OVERLAP;
+		lastLoaded = System.currentTimeMillis();
+		for (RevokedTokenDTO dto : load(from)) {
+			add(current, users, dto);
+			confirmed.remove(dto.getTokenId());
+		}
+	}
+
+	/**
+	 * Deletes rows whose tokens have expired and builds filter again without
+	 * them. Requests use the previous filter until the new one is complete.
+	 */
+	@EventListener(ContextRefreshedEvent.class)
+	@Scheduled(initialDelayString = "${jwt.revocation.purge.ms:3600000}", fixedDelayString = "${jwt.revocation.purge.ms:3600000}")
+	public void purge() {
+		long now = System.currentTimeMillis();
+		int deleted = new TransactionTemplate(transactionManager)
+				.execute(status -> entityManager.createQuery("delete from RevokedTokenDTO t where t.expiresAt < :now")
+						.setParameter("now", new Timestamp(now)).executeUpdate());
+
+		BloomFilter rebuilt = new BloomFilter(bloomBits, bloomHashes);
+		Map<Long, Long> rebuiltUsers = new ConcurrentHashMap<Long, Long>();
+		List<RevokedTokenDTO> list = load(0);
+		for (RevokedTokenDTO dto : list) {
+			add(rebuilt, rebuiltUsers, dto);
+		}
+		lastLoaded = now;
+		filter = rebuilt;
+		users = rebuiltUsers;
+		confirmed.clear();
+		log.info("Revoked tokens loaded " + list.size() + ", expired removed " + deleted);
+	}
+
+	private List<RevokedTokenDTO> load(long from) {
+		return new TransactionTemplate(transactionManager).execute(status -> entityManager
+				.createQuery("from RevokedTokenDTO t where t.revokedAt > :from", RevokedTokenDTO.class)
+				.setParameter("from", new Timestamp(from)).getResultList());
+	}
+
+	private void add(BloomFilter filter, Map<Long, Long> users, RevokedTokenDTO dto) {
+		String id = dto.getTokenId();
+		if (id.startsWith(USER_PREFIX)) {
+			users.merge(dto.getUserId(), dto.getRevokedAt().getTime() / 1000 + 1, Math::max);
+		} else {
+			filter.add(id);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.rays.config;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.annotation.RequestScope;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.rays.common.UserContext;
+import com.rays.common.UserContextArgumentResolver;
+
+/**
+ * Makes context of current request available to controllers, as an injected
+ * request scoped UserContext or as a handler method argument.
+ */
+@Configuration
+public class UserContextConfig implements WebMvcConfigurer {
+
+	/**
+	 * Injected instance is a proxy that reads context of the request being
+	 * served by current thread, so singleton controllers can keep it in a field.
+	 * 
+	 * Request scope is bound only to the thread that runs the handler method. A
+	 * Callable, DeferredResult or other code run on another thread fails with
+	 * "No thread-bound request found" when it uses the proxy; async handlers
+	 * must declare a UserContext parameter (UserContextArgumentResolver) and
+	 * hand that object to the other thread.
+	 * 
+	 * @param request
+	 * @return
+	 */
+	@Bean
+	@RequestScope
+	public UserContext userContext(HttpServletRequest request) {
+		return UserContextArgumentResolver.getUserContext(request);
+	}
+
+	@Override
+	public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+		resolvers.add(new UserContextArgumentResolver());
+	}
+
+}
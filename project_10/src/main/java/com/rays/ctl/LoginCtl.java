@@ -1,10 +1,11 @@
 package com.rays.ctl;
 
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,16 +23,20 @@ import org.springframework.web.multipart.MultipartFile;
 import com.rays.common.BaseCtl;
 import com.rays.common.MenuItem;
 import com.rays.common.ORSResponse;
-import com.rays.common.UserContext;
 import com.rays.common.attachment.AttachmentDTO;
 import com.rays.common.attachment.AttachmentServiceInt;
 import com.rays.config.JWTUtil;
+import com.rays.config.LoginThrottle;
+import com.rays.config.TokenRevocation;
 import com.rays.dto.UserDTO;
 import com.rays.form.LoginForm;
+import com.rays.form.RefreshTokenForm;
 import com.rays.form.UserForm;
 import com.rays.form.UserRegistrationForm;
 import com.rays.service.UserServiceInt;
 
+import io.jsonwebtoken.Claims;
+
 /**
  * Login controller provides API for Sign Up, Sign In, Forgot password,
  * uploading profile pic, and menu generation.
@@ -51,6 +56,12 @@ public class LoginCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
 	@Autowired
 	private AttachmentServiceInt attachmentService;
 
+	@Autowired
+	private LoginThrottle loginThrottle;
+
+	@Autowired
+	private TokenRevocation tokenRevocation;
+
 	/**
 	 * Find user by login id
 	 */
@@ -72,42 +83,111 @@ public class LoginCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
 		return res;
 	}
 
+	/**
+	 * Users are not exported through the public Auth API
+	 */
+	@Override
+	public void export(UserForm form, String format, HttpServletResponse response) throws IOException {
+		response.sendError(HttpServletResponse.SC_NOT_FOUND);
+	}
+
 	/**
 	 * User login (authentication)
 	 */
 	@PostMapping("login")
-	public ORSResponse login(@RequestBody @Valid LoginForm form, BindingResult bindingResult, HttpSession session,
-			HttpServletRequest request) throws Exception {
+	public ORSResponse login(@RequestBody @Valid LoginForm form, BindingResult bindingResult,
+			HttpServletRequest request, HttpServletResponse response) throws Exception {
 
 		ORSResponse res = validate(bindingResult);
 		if (!res.isSuccess()) {
 			return res;
 		}
 
+		if (!loginThrottle.tryLogin(request.getRemoteAddr(), form.getLoginId())) {
+			return tooManyAttempts(response);
+		}
+
 		UserDTO dto = baseService.authenticate(form.getLoginId(), form.getPassword());
 
 		if (dto == null) {
 			res.setSuccess(false);
 			res.addMessage("Invalid ID or Password");
 		} else {
-			UserContext context = new UserContext(dto);
-
-			session.setAttribute("test", dto.getFirstName());
-
 			// Add user details to response
 			res.setSuccess(true);
 			res.addData(dto);
-			res.addResult("jsessionid", session.getId());
 			res.addResult("loginId", dto.getLoginId());
 			res.addResult("role", dto.getRoleName());
 			res.addResult("fname", dto.getFirstName());
 			res.addResult("lname", dto.getLastName());
 
-			// Generate JWT token
-			final String token = jwtUtil.generateToken(dto.getLoginId());
-			res.addResult("token", token);
+			// Generate JWT tokens of a new login session
+			String sessionId = jwtUtil.newSessionId();
+			res.addResult("token", jwtUtil.generateToken(dto, sessionId));
+			res.addResult("refreshToken", jwtUtil.generateRefreshToken(dto, sessionId));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Exchanges refresh token for new access and refresh tokens of same login
+	 * session. A refresh token is accepted once, when a used one is presented
+	 * again the whole session is revoked. Marking the token used decides which
+	 * of concurrent requests with the same token wins.
+	 */
+	@PostMapping("refresh")
+	public ORSResponse refresh(@RequestBody @Valid RefreshTokenForm form, BindingResult bindingResult,
+			HttpServletResponse response) {
+
+		ORSResponse res = validate(bindingResult);
+		if (!res.isSuccess()) {
+			return res;
+		}
+
+		Claims claims;
+		try {
+			claims = jwtUtil.getClaims(form.getRefreshToken());
+		} catch (Exception e) {
+			return invalidToken(response);
+		}
+		if (!JWTUtil.REFRESH.equals(claims.get(JWTUtil.TYPE))) {
+			return invalidToken(response);
+		}
+
+		String sessionId = claims.get(JWTUtil.SESSION_ID, String.class);
+		if (tokenRevocation.isRevoked(claims)) {
+			if (!tokenRevocation.isRevoked(sessionId)) {
+				// used refresh token, it may have been stolen
+				tokenRevocation.revoke(sessionId, jwtUtil.getUserContext(claims).getUserId(),
+						jwtUtil.getRefreshExpiry());
+			}
+			return invalidToken(response);
 		}
 
+		UserDTO dto = baseService.findByLoginId(claims.getSubject(), userContext);
+		if (dto == null) {
+			return invalidToken(response);
+		}
+
+		if (!tokenRevocation.use(claims.getId(), dto.getId(), claims.getExpiration())) {
+			// used by a concurrent request, it may have been stolen
+			tokenRevocation.revoke(sessionId, dto.getId(), jwtUtil.getRefreshExpiry());
+			return invalidToken(response);
+		}
+
+		res.addResult("token", jwtUtil.generateToken(dto, sessionId));
+		res.addResult("refreshToken", jwtUtil.generateRefreshToken(dto, sessionId));
+		return res;
+	}
+
+	/**
+	 * Rejects an expired, revoked or malformed refresh token
+	 */
+	private ORSResponse invalidToken(HttpServletResponse response) {
+		response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+		ORSResponse res = new ORSResponse(false);
+		res.addMessage("Session expired, please login again");
 		return res;
 	}
 
@@ -115,7 +195,12 @@ public class LoginCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
 	 * Forgot Password API: Sends password to user email
 	 */
 	@GetMapping("fp/{login}")
-	public ORSResponse forgotPassword(@PathVariable String login, HttpServletRequest request) {
+	public ORSResponse forgotPassword(@PathVariable String login, HttpServletRequest request,
+			HttpServletResponse response) {
+
+		if (!loginThrottle.tryForgotPassword(request.getRemoteAddr(), login)) {
+			return tooManyAttempts(response);
+		}
 
 		ORSResponse res = new ORSResponse(true);
 		UserDTO dto = baseService.forgotPassword(login);
@@ -130,6 +215,16 @@ public class LoginCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
 		return res;
 	}
 
+	/**
+	 * Rejects an attempt of throttled client or login id
+	 */
+	private ORSResponse tooManyAttempts(HttpServletResponse response) {
+		response.setStatus(429);
+		ORSResponse res = new ORSResponse(false);
+		res.addMessage("Too many attempts, please try again later");
+		return res;
+	}
+
 	/**
 	 * User Registration (Sign Up)
 	 */
@@ -203,7 +298,7 @@ public class LoginCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
 	 * Get menu for logged-in user
 	 */
 	@GetMapping("menu")
-	public ORSResponse menu(HttpSession session) {
+	public ORSResponse menu() {
 
 		LinkedHashSet<MenuItem> menuBar = new LinkedHashSet<>();
 
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.rays.common.BaseCtl;
@@ -55,10 +56,21 @@ public class MarksheetCtl extends BaseCtl<MarksheetForm, MarksheetDTO, Marksheet
 		return res;
 	}
 
+	/**
+	 * Top students of organization, or of a college
+	 * 
+	 * @param top       number of students
+	 * @param collegeId
+	 * @param ties      include students having same total as the last one
+	 * @return
+	 */
 	@GetMapping("meritlist")
-	public ORSResponse getMeritList() {
+	public ORSResponse getMeritList(@RequestParam(value = "top", required = false, defaultValue = "10") int top,
+			@RequestParam(value = "collegeId", required = false) Long collegeId,
+			@RequestParam(value = "ties", required = false, defaultValue = "true") boolean ties) {
 		System.out.println("getMeritList run on ctl");
-		List<MarksheetDTO> list = baseService.getMeritList(userContext);
+		top = Math.max(top, 1);
+		List<MarksheetDTO> list = baseService.getMeritList(collegeId, top, ties, userContext);
 		ORSResponse res = new ORSResponse(true);
 		res.addResult("list",list);
 //		System.out.println("Merit list :: " + list);
@@ -1,7 +1,6 @@
 package com.rays.ctl;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 
@@ -26,9 +25,12 @@ import com.rays.common.BaseCtl;
 import com.rays.common.DropdownList;
 import com.rays.common.ORSResponse;
 import com.rays.common.attachment.AttachmentDTO;
+import com.rays.common.attachment.AttachmentSender;
 import com.rays.common.attachment.AttachmentServiceInt;
 import com.rays.common.mail.EmailDTO;
 import com.rays.common.mail.EmailServiceImpl;
+import com.rays.config.JWTUtil;
+import com.rays.config.TokenRevocation;
 import com.rays.dto.RoleDTO;
 import com.rays.dto.UserDTO;
 import com.rays.form.ChangePasswordForm;
@@ -38,6 +40,8 @@ import com.rays.form.UserForm;
 import com.rays.service.RoleServiceInt;
 import com.rays.service.UserServiceInt;
 
+import io.jsonwebtoken.Claims;
+
 /**
  * User Controller to handle User related operations.
  * Dipanshi Mukati
@@ -55,9 +59,18 @@ public class UserCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
     @Autowired
     AttachmentServiceInt attachmentService;
 
+    @Autowired
+    AttachmentSender attachmentSender;
+
     @Autowired
     EmailServiceImpl emailSender;
 
+    @Autowired
+    JWTUtil jwtUtil;
+
+    @Autowired
+    TokenRevocation tokenRevocation;
+
     /**
      * Preloads role list for dropdown
      */
@@ -77,8 +90,22 @@ public class UserCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
     @GetMapping("/logout")
     public ORSResponse logout(HttpServletRequest req, HttpServletResponse response) {
         ORSResponse res = new ORSResponse(true);
-        HttpSession session = req.getSession();
-        session.invalidate();
+        HttpSession session = req.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+
+        // revoke access and refresh tokens of this login session
+        String header = req.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            try {
+                Claims claims = jwtUtil.getClaims(header.substring(7));
+                tokenRevocation.revoke(claims.get(JWTUtil.SESSION_ID, String.class),
+                        jwtUtil.getUserContext(claims).getUserId(), jwtUtil.getRefreshExpiry());
+            } catch (Exception e) {
+                // token is invalid already
+            }
+        }
         res.addMessage("Logout Successfully");
         return res;
     }
@@ -189,24 +216,24 @@ public class UserCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
      * Download profile picture of logged-in user
      */
     @GetMapping("/profilePic")
-    public @ResponseBody void downloadPic(HttpServletResponse response) {
-        downloadPic(userContext.getUserId(), response);
+    public @ResponseBody void downloadPic(@RequestParam(required = false, defaultValue = "0") int size,
+                                          HttpServletRequest request, HttpServletResponse response) {
+        downloadPic(userContext.getUserId(), size, request, response);
     }
 
     /**
-     * Download profile picture by user id
+     * Download profile picture by user id, scaled to fit size x size pixels
+     * if size is given
      */
     @GetMapping("/profilePic/{userId}")
-    public @ResponseBody void downloadPic(@PathVariable Long userId, HttpServletResponse response) {
-        UserDTO userDTO = baseService.findById(userId, userContext);
-        AttachmentDTO attachmentDTO = attachmentService.findById(userDTO.getImageId(), userContext);
+    public @ResponseBody void downloadPic(@PathVariable Long userId,
+                                          @RequestParam(required = false, defaultValue = "0") int size,
+                                          HttpServletRequest request, HttpServletResponse response) {
+        Long imageId = baseService.findImageId(userId, userContext);
         try {
-            if (attachmentDTO != null) {
-                response.setContentType(attachmentDTO.getType());
-                OutputStream out = response.getOutputStream();
-                out.write(attachmentDTO.getDoc());
-                out.close();
-            } else {
+            if (imageId == null || imageId <= 0
+                    || !attachmentSender.send(imageId, size, request, response, userContext)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 response.getWriter().write("ERROR: File not found");
             }
         } catch (IOException e) {
@@ -237,15 +264,11 @@ public class UserCtl extends BaseCtl<UserForm, UserDTO, UserServiceInt> {
      * Download document by id
      */
     @GetMapping("/doc/{id}")
-    public @ResponseBody void download(@PathVariable Long id, HttpServletResponse response) {
-        AttachmentDTO attachmentDTO = attachmentService.findById(id, userContext);
+    public @ResponseBody void download(@PathVariable Long id, HttpServletRequest request,
+                                       HttpServletResponse response) {
         try {
-            if (attachmentDTO != null) {
-                response.setContentType(attachmentDTO.getType());
-                OutputStream out = response.getOutputStream();
-                out.write(attachmentDTO.getDoc());
-                out.close();
-            } else {
+            if (!attachmentSender.send(id, request, response, userContext)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 response.getWriter().write("ERROR: File not found");
             }
         } catch (IOException e) {
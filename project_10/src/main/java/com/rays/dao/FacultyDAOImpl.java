@@ -63,21 +63,36 @@ public class FacultyDAOImpl extends BaseDAOImpl<FacultyDTO> implements FacultyDA
 	@Autowired
 	SubjectDAOInt subjectDao;
 	
+	@Override
+	protected void populateAll(List<FacultyDTO> list, UserContext userContext) {
+		List<Long> collegeIds = new ArrayList<Long>();
+		List<Long> courseIds = new ArrayList<Long>();
+		List<Long> subjectIds = new ArrayList<Long>();
+		for (FacultyDTO dto : list) {
+			collegeIds.add(dto.getCollegeId());
+			courseIds.add(dto.getCourseId());
+			subjectIds.add(dto.getSubjectId());
+		}
+		referenceDataCache.preload(CollegeDTO.class, collegeIds, collegeDao, userContext);
+		referenceDataCache.preload(CourseDTO.class, courseIds, courseDao, userContext);
+		referenceDataCache.preload(SubjectDTO.class, subjectIds, subjectDao, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(FacultyDTO dto, UserContext userContext) {
 		if (dto.getCollegeId() > 0) {
-			CollegeDTO collegeDto = collegeDao.findByPK(dto.getCollegeId(), userContext);
-			dto.setCollegeName(collegeDto.getName());
+			dto.setCollegeName(
+					referenceDataCache.getValue(CollegeDTO.class, dto.getCollegeId(), collegeDao, userContext));
 			System.out.println(dto.getCollegeName()+"CollegeNAMe-------");
 		}
 		if (dto.getCourseId() > 0) {
-			CourseDTO courseDto = courseDao.findByPK(dto.getCourseId(), userContext);
-			dto.setCourseName(courseDto.getCourseName());
+			dto.setCourseName(referenceDataCache.getValue(CourseDTO.class, dto.getCourseId(), courseDao, userContext));
 			System.out.println(dto.getCourseName()+"CourseName----");
 		}
 		if (dto.getSubjectId()> 0) {
-			SubjectDTO subjectDto = subjectDao.findByPK(dto.getSubjectId(), userContext);
-			dto.setSubjectName(subjectDto.getSubjectName());
+			dto.setSubjectName(
+					referenceDataCache.getValue(SubjectDTO.class, dto.getSubjectId(), subjectDao, userContext));
 			System.out.println(dto.getSubjectName()+"SubjectName----");
 		}
 	}
@@ -1,6 +1,7 @@
 package com.rays.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.TypedQuery;
@@ -26,14 +27,86 @@ public class MarksheetDAOImpl extends BaseDAOImpl<MarksheetDTO> implements Marks
 	StudentDAOInt studentDao = null;
 
 	@Override
-	public List<MarksheetDTO> getMeritList() {
-		
-		
-	System.out.println("marksheetDao merit marksheett run start");
-//	List list = super.runHQL("from MarksheetDTO order by (physics+chemistry+maths) desc limit 0,10", null);
-		List list = super.marksheetMeritList("from MarksheetDTO order by (physics+chemistry+maths) desc", null);
-	return list;
+	public List<MarksheetDTO> getMeritList(Long collegeId, int top, boolean ties, UserContext userContext) {
+
+		// Scope of merit list, each scope is served by an index ending in TOTAL
+		StringBuilder where = new StringBuilder(" where m.total is not null");
+		if (userContext != null && !isZeroNumber(userContext.getOrgId())) {
+			where.append(" and m.orgId = :orgId");
+		}
+		if (!isZeroNumber(collegeId)) {
+			where.append(" and m.collegeId = :collegeId");
+		}
+
+		// Total of last record of top N, records with same total are also
+		// included in list
+		Integer cutoff = null;
+		if (ties) {
+			TypedQuery<Integer> q = entityManager
+					.createQuery("select m.total from MarksheetDTO m" + where + " order by m.total desc", Integer.class);
+			setScope(q, collegeId, userContext);
+			q.setFirstResult(top - 1);
+			q.setMaxResults(1);
+			List<Integer> totals = q.getResultList();
+			if (!totals.isEmpty()) {
+				cutoff = totals.get(0);
+				where.append(" and m.total >= :cutoff");
+			}
+		}
+
+		TypedQuery<MarksheetDTO> q = entityManager.createQuery(
+				"from MarksheetDTO m" + where + " order by m.total desc, m.rollNo asc", MarksheetDTO.class);
+		setScope(q, collegeId, userContext);
+		if (cutoff != null) {
+			q.setParameter("cutoff", cutoff);
+		} else {
+			q.setMaxResults(top);
+		}
+		List<MarksheetDTO> list = q.getResultList();
+
+		// Standard competition ranking 1, 2, 2, 4
+		for (int i = 0; i < list.size(); i++) {
+			MarksheetDTO dto = list.get(i);
+			if (i > 0 && dto.getTotal().equals(list.get(i - 1).getTotal())) {
+				dto.setRank(list.get(i - 1).getRank());
+			} else {
+				dto.setRank(i + 1);
+			}
+		}
+		return list;
+	}
+
+	private void setScope(TypedQuery<?> q, Long collegeId, UserContext userContext) {
+		if (userContext != null && !isZeroNumber(userContext.getOrgId())) {
+			q.setParameter("orgId", userContext.getOrgId());
 		}
+		if (!isZeroNumber(collegeId)) {
+			q.setParameter("collegeId", collegeId);
+		}
+	}
+
+	@Override
+	public int updateTotals() {
+		String sum = "coalesce(m.physics, 0) + coalesce(m.chemistry, 0) + coalesce(m.maths, 0)";
+		return entityManager
+				.createQuery("update MarksheetDTO m set m.total = " + sum + ", m.percentage = (" + sum
+						+ ") * 100.0 / :max where m.total is null")
+				.setParameter("max", (double) (MarksheetDTO.MAX_MARKS * MarksheetDTO.SUBJECTS)).executeUpdate();
+	}
+
+	@Override
+	public int updateCollegeIds(Collection<Long> studentIds) {
+		String hql = "update MarksheetDTO m set m.collegeId = (select s.collegeId from StudentDTO s where s.id = m.studentId)";
+		if (studentIds == null) {
+			return entityManager.createQuery(hql + " where m.collegeId is null and m.studentId is not null")
+					.executeUpdate();
+		}
+		if (studentIds.isEmpty()) {
+			return 0;
+		}
+		return entityManager.createQuery(hql + " where m.studentId in :ids").setParameter("ids", studentIds)
+				.executeUpdate();
+	}
 
 	@Override
 	protected List<Predicate> getWhereClause(MarksheetDTO dto, CriteriaBuilder builder, Root<MarksheetDTO> qRoot) {
@@ -64,13 +137,26 @@ public class MarksheetDAOImpl extends BaseDAOImpl<MarksheetDTO> implements Marks
 		return whereCondition;
 	}
 
+	@Override
+	protected void populateAll(List<MarksheetDTO> list, UserContext userContext) {
+		List<Long> studentIds = new ArrayList<Long>();
+		for (MarksheetDTO dto : list) {
+			studentIds.add(dto.getStudentId());
+		}
+		// Students are loaded in one query, populate() finds them in persistence
+		// context
+		studentDao.findByIds(studentIds, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(MarksheetDTO dto, UserContext userContext) {
 		if (dto.getStudentId() != null) {
-			System.out.println("MarksheetDao---"+dto.getStudentId());
-			StudentDTO studentDTO = studentDao.findByPK(dto.getStudentId(), userContext);
-			if (studentDTO != null) {
-				dto.setName(studentDTO.getFirstName() + " " + studentDTO.getLastName());
+			dto.setCollegeId(referenceDataCache.getId(StudentDTO.class, dto.getStudentId(), "collegeId",
+					StudentDTO::getCollegeId, studentDao, userContext));
+			String name = referenceDataCache.getValue(StudentDTO.class, dto.getStudentId(), studentDao, userContext);
+			if (name != null) {
+				dto.setName(name);
 			}
 		}
 	}
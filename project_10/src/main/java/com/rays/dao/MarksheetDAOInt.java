@@ -1,8 +1,10 @@
 package com.rays.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.rays.common.BaseDAOInt;
+import com.rays.common.UserContext;
 import com.rays.dto.MarksheetDTO;
 
 /**
@@ -12,11 +14,28 @@ import com.rays.dto.MarksheetDTO;
 public interface MarksheetDAOInt extends BaseDAOInt<MarksheetDTO> {
 
 	/**
-	 * Get merit list
+	 * Get merit list in order of total marks, with rank of each record
 	 * 
-	 * @param pageNo
-	 * @param pageSize
+	 * @param collegeId   college of students, null for all colleges
+	 * @param top         number of records
+	 * @param ties        true to include records having same total as last one
+	 * @param userContext
 	 * @return
 	 */
-	public List<MarksheetDTO> getMeritList();
+	public List<MarksheetDTO> getMeritList(Long collegeId, int top, boolean ties, UserContext userContext);
+
+	/**
+	 * Computes total and percentage of records saved before they were stored
+	 * 
+	 * @return number of updated records
+	 */
+	public int updateTotals();
+
+	/**
+	 * Copies college of students to their marksheets
+	 * 
+	 * @param studentIds students, null for marksheets having no college
+	 * @return number of updated records
+	 */
+	public int updateCollegeIds(Collection<Long> studentIds);
 }
@@ -61,11 +61,22 @@ public class StudentDAOImpl extends BaseDAOImpl<StudentDTO> implements StudentDA
 	@Autowired
 	CollegeDAOInt collegeService = null;
 
+	@Override
+	protected void populateAll(List<StudentDTO> list, UserContext userContext) {
+		List<Long> collegeIds = new ArrayList<Long>();
+		for (StudentDTO dto : list) {
+			collegeIds.add(dto.getCollegeId());
+		}
+		referenceDataCache.preload(CollegeDTO.class, collegeIds, collegeService, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(StudentDTO dto, UserContext userContext) {
-		CollegeDTO collegeDTO = collegeService.findByPK(dto.getCollegeId(), userContext);
-		if (collegeDTO != null) {
-			dto.setCollegeName(collegeDTO.getName());
+		String collegeName = referenceDataCache.getValue(CollegeDTO.class, dto.getCollegeId(), collegeService,
+				userContext);
+		if (collegeName != null) {
+			dto.setCollegeName(collegeName);
 		}
 	}
 
@@ -50,12 +50,22 @@ public class SubjectDAOImpl extends BaseDAOImpl<SubjectDTO> implements SubjectDA
 	@Autowired
 	CourseDAOInt courseDao;
 
+	@Override
+	protected void populateAll(List<SubjectDTO> list, UserContext userContext) {
+		List<Long> courseIds = new ArrayList<Long>();
+		for (SubjectDTO dto : list) {
+			courseIds.add(dto.getCourseId());
+		}
+		referenceDataCache.preload(CourseDTO.class, courseIds, courseDao, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(SubjectDTO dto, UserContext userContext) {
 		if (dto.getCourseId() != 0) {
-			CourseDTO courseDTO = courseDao.findByPK(dto.getCourseId(), userContext);
-			if (courseDTO != null) {
-			dto.setCourseName(courseDTO.getCourseName());
+			String courseName = referenceDataCache.getValue(CourseDTO.class, dto.getCourseId(), courseDao, userContext);
+			if (courseName != null) {
+			dto.setCourseName(courseName);
 			}
 			}
 	}
@@ -56,15 +56,30 @@ public class TimeTableDAOImpl extends BaseDAOImpl<TimeTableDTO> implements TimeT
 	@Autowired 
 	CourseDAOInt courseService;
 	
+	@Override
+	protected void populateAll(List<TimeTableDTO> list, UserContext userContext) {
+		List<Long> subjectIds = new ArrayList<Long>();
+		List<Long> courseIds = new ArrayList<Long>();
+		for (TimeTableDTO dto : list) {
+			subjectIds.add(dto.getSubjectId());
+			courseIds.add(dto.getCourseId());
+		}
+		referenceDataCache.preload(SubjectDTO.class, subjectIds, subjectService, userContext);
+		referenceDataCache.preload(CourseDTO.class, courseIds, courseService, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(TimeTableDTO dto, UserContext userContext) {
-		SubjectDTO subjectDto = subjectService.findByPK(dto.getSubjectId(), userContext);
-		if (subjectDto != null) {
-			dto.setSubjectName(subjectDto.getSubjectName());}
+		String subjectName = referenceDataCache.getValue(SubjectDTO.class, dto.getSubjectId(), subjectService,
+				userContext);
+		if (subjectName != null) {
+			dto.setSubjectName(subjectName);}
 		
-		CourseDTO courseDto = courseService.findByPK(dto.getCourseId(), userContext);
-		if (courseDto != null) {
-			dto.setCourseName(courseDto.getCourseName());
+		String courseName = referenceDataCache.getValue(CourseDTO.class, dto.getCourseId(), courseService,
+				userContext);
+		if (courseName != null) {
+			dto.setCourseName(courseName);
 		}
 		
 		
@@ -1,6 +1,7 @@
 package com.rays.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.TypedQuery;
@@ -14,8 +15,6 @@ import org.springframework.stereotype.Repository;
 
 import com.rays.common.BaseDAOImpl;
 import com.rays.common.UserContext;
-import com.rays.common.attachment.AttachmentDAOInt;
-import com.rays.common.attachment.AttachmentDTO;
 import com.rays.dto.RoleDTO;
 import com.rays.dto.UserDTO;
 
@@ -28,9 +27,6 @@ import com.rays.dto.UserDTO;
 @Repository
 public class UserDAOImpl extends BaseDAOImpl<UserDTO> implements UserDAOInt {
 
-	@Autowired
-	public AttachmentDAOInt attachmentService;
-
 	@Override
 	public Class<UserDTO> getDTOClass() {
 		return UserDTO.class;
@@ -81,11 +77,20 @@ public class UserDAOImpl extends BaseDAOImpl<UserDTO> implements UserDAOInt {
 	@Autowired
 	RoleDAOInt roleDao;
 
+	@Override
+	protected void populateAll(List<UserDTO> list, UserContext userContext) {
+		List<Long> roleIds = new ArrayList<Long>();
+		for (UserDTO dto : list) {
+			roleIds.add(dto.getRoleId());
+		}
+		referenceDataCache.preload(RoleDTO.class, roleIds, roleDao, userContext);
+		super.populateAll(list, userContext);
+	}
+
 	@Override
 	protected void populate(UserDTO dto, UserContext userContext) {
 		if (dto.getRoleId() != null && dto.getRoleId() > 0) {
-			RoleDTO roleDto = roleDao.findByPK(dto.getRoleId(), userContext);
-			dto.setRoleName(roleDto.getName());
+			dto.setRoleName(referenceDataCache.getValue(RoleDTO.class, dto.getRoleId(), roleDao, userContext));
 			System.out.println(dto.getRoleName() + "RoleName-------");
 		}
 		if (dto.getId() != null && dto.getId() > 0) {
@@ -94,12 +99,25 @@ public class UserDAOImpl extends BaseDAOImpl<UserDTO> implements UserDAOInt {
 		}
 	}
 
-	public void delete(UserDTO dto, UserContext userContext) {
-		super.delete(dto, userContext);
-		Long id = dto.getImageId();
-		System.out.println(id);
-		AttachmentDTO attachmentDto = attachmentService.findByPK(id, userContext);
-		attachmentService.delete(attachmentDto, userContext);
+	/**
+	 * Profile picture ids of users, one query per 500 user ids
+	 */
+	@Override
+	public List<Long> findImageIds(Collection<Long> ids, UserContext userContext) {
+		boolean orgFilter = userContext != null && !isZeroNumber(userContext.getOrgId());
+
+		List<Long> list = new ArrayList<Long>(ids);
+		List<Long> imageIds = new ArrayList<Long>();
+		for (int from = 0; from < list.size(); from += IN_LIST_SIZE) {
+			TypedQuery<Long> query = entityManager.createQuery("select u.imageId from UserDTO u where u.id in :ids"
+					+ " and u.imageId is not null" + (orgFilter ? " and u.orgId = :orgId" : ""), Long.class);
+			query.setParameter("ids", list.subList(from, Math.min(from + IN_LIST_SIZE, list.size())));
+			if (orgFilter) {
+				query.setParameter("orgId", userContext.getOrgId());
+			}
+			imageIds.addAll(query.getResultList());
+		}
+		return imageIds;
 	}
 
 	@Override
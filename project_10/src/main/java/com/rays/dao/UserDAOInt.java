@@ -1,5 +1,8 @@
 package com.rays.dao;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.rays.common.BaseDAOInt;
 import com.rays.common.UserContext;
 import com.rays.dto.UserDTO;
@@ -13,6 +16,14 @@ public interface UserDAOInt extends BaseDAOInt<UserDTO> {
 	public UserDTO findByEmail(String attribute, String val, UserContext userContext);
 	public UserDTO findByLogin(String login);
 
+	/**
+	 * Profile picture ids of users
+	 * 
+	 * @param ids user ids
+	 * @return
+	 */
+	public List<Long> findImageIds(Collection<Long> ids, UserContext userContext);
+
 	
 	
 }
@@ -2,10 +2,14 @@ package com.rays.dto;
 
 import java.util.LinkedHashMap;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.rays.common.BaseDTO;
 /**
  *Dipanshi Mukati 
@@ -13,6 +17,8 @@ import com.rays.common.BaseDTO;
  */
 @Entity
 @Table(name = "ST_COURSE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course")
 public class CourseDTO extends BaseDTO {
 	
 	@Column(name = "COURSE_ID", length = 50)
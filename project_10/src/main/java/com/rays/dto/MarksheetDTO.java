@@ -4,7 +4,9 @@ import java.util.LinkedHashMap;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import com.rays.common.BaseDTO;
 
@@ -14,9 +16,21 @@ import com.rays.common.BaseDTO;
  */
 
 @Entity
-@Table(name = "ST_MARKSHEET")
+@Table(name = "ST_MARKSHEET", indexes = { @Index(name = "IDX_MARKSHEET_TOTAL", columnList = "TOTAL"),
+		@Index(name = "IDX_MARKSHEET_ORG_TOTAL", columnList = "ORG_ID,TOTAL"),
+		@Index(name = "IDX_MARKSHEET_COLLEGE_TOTAL", columnList = "COLLEGE_ID,TOTAL") })
 public class MarksheetDTO extends BaseDTO {
 
+	/**
+	 * Maximum marks of a subject
+	 */
+	public static final int MAX_MARKS = 100;
+
+	/**
+	 * Number of subjects
+	 */
+	public static final int SUBJECTS = 3;
+
 	@Column(name = "ROLL_NO", length = 20)
 	protected String rollNo = null;
 
@@ -34,7 +48,41 @@ public class MarksheetDTO extends BaseDTO {
 
 	@Column(name = "STUDENT_ID")
 	protected Long studentId;
-	
+
+	/**
+	 * Sum of marks, kept up to date on save. Merit list is read in order of it.
+	 */
+	@Column(name = "TOTAL")
+	protected Integer total;
+
+	@Column(name = "PERCENTAGE")
+	protected Double percentage;
+
+	/**
+	 * College of student, copied on save to rank students of a college
+	 */
+	@Column(name = "COLLEGE_ID")
+	protected Long collegeId;
+
+	/**
+	 * Position in merit list, equal totals get same rank
+	 */
+	@Transient
+	protected Integer rank;
+
+	/**
+	 * Computes total and percentage from marks. Missing marks are counted as
+	 * zero.
+	 */
+	public void computeTotal() {
+		int sum = 0;
+		for (Integer marks : new Integer[] { physics, chemistry, maths }) {
+			sum += (marks == null) ? 0 : marks;
+		}
+		total = sum;
+		percentage = sum * 100.0 / (MAX_MARKS * SUBJECTS);
+	}
+
 	public Long getStudentId() {
 		return studentId;
 	}
@@ -83,6 +131,38 @@ public class MarksheetDTO extends BaseDTO {
 		this.maths = maths;
 	}
 
+	public Integer getTotal() {
+		return total;
+	}
+
+	public void setTotal(Integer total) {
+		this.total = total;
+	}
+
+	public Double getPercentage() {
+		return percentage;
+	}
+
+	public void setPercentage(Double percentage) {
+		this.percentage = percentage;
+	}
+
+	public Long getCollegeId() {
+		return collegeId;
+	}
+
+	public void setCollegeId(Long collegeId) {
+		this.collegeId = collegeId;
+	}
+
+	public Integer getRank() {
+		return rank;
+	}
+
+	public void setRank(Integer rank) {
+		this.rank = rank;
+	}
+
 	public String getKey() {
 		return id + "";
 	}
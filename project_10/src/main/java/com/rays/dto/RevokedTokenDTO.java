@@ -0,0 +1,72 @@
+package com.rays.dto;
+
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Revoked login session, refresh token or all tokens of a user. A row is kept
+ * until the tokens it revokes have expired.
+ */
+@Entity
+@Table(name = "ST_REVOKED_TOKEN", indexes = { @Index(name = "IDX_REVOKED_TOKEN_AT", columnList = "REVOKED_AT"),
+		@Index(name = "IDX_REVOKED_TOKEN_EXPIRES", columnList = "EXPIRES_AT") })
+public class RevokedTokenDTO {
+
+	/**
+	 * Session id (sid) or token id (jti) of revoked tokens, "user:" followed by
+	 * user id for all tokens of a user
+	 */
+	@Id
+	@Column(name = "TOKEN_ID", length = 64)
+	private String tokenId;
+
+	@Column(name = "USER_ID")
+	private Long userId;
+
+	/**
+	 * Tokens of a user issued before this time are revoked
+	 */
+	@Column(name = "REVOKED_AT")
+	private Timestamp revokedAt;
+
+	@Column(name = "EXPIRES_AT")
+	private Timestamp expiresAt;
+
+	public String getTokenId() {
+		return tokenId;
+	}
+
+	public void setTokenId(String tokenId) {
+		this.tokenId = tokenId;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(Long userId) {
+		this.userId = userId;
+	}
+
+	public Timestamp getRevokedAt() {
+		return revokedAt;
+	}
+
+	public void setRevokedAt(Timestamp revokedAt) {
+		this.revokedAt = revokedAt;
+	}
+
+	public Timestamp getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Timestamp expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+}
@@ -2,10 +2,14 @@ package com.rays.dto;
 
 import java.util.LinkedHashMap;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.rays.common.BaseDTO;
 
 /**
@@ -15,6 +19,8 @@ import com.rays.common.BaseDTO;
 
 @Entity
 @Table(name = "ST_ROLE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "role")
 public class RoleDTO extends BaseDTO {
 
 	public static String YES = "Y";
@@ -2,10 +2,14 @@ package com.rays.dto;
 
 import java.util.LinkedHashMap;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.rays.common.BaseDTO;
 
 /**
@@ -14,6 +18,8 @@ import com.rays.common.BaseDTO;
  */
 @Entity
 @Table(name = "ST_SUBJECT")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "subject")
 public class SubjectDTO extends BaseDTO {
 
 	@Column(name = "SUBJECT_ID", length = 50)
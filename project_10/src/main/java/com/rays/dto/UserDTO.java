@@ -9,6 +9,8 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
 import com.rays.common.BaseDTO;
 
 /**
@@ -33,6 +35,10 @@ public class UserDTO extends BaseDTO {
 	@Column(name = "LOGIN_ID", length = 50)
 	private String loginId;
 
+	/**
+	 * Read from requests, never written to responses or exports
+	 */
+	@JsonProperty(access = Access.WRITE_ONLY)
 	@Column(name = "PASSWORD", length = 50)
 	private String password;
 
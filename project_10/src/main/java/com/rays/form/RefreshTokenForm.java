@@ -0,0 +1,23 @@
+package com.rays.form;
+
+import javax.validation.constraints.NotEmpty;
+
+import com.rays.common.BaseForm;
+
+/**
+ * Contains refresh token of a login session.
+ */
+public class RefreshTokenForm extends BaseForm {
+
+	@NotEmpty(message = "refreshToken is required")
+	private String refreshToken;
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public void setRefreshToken(String refreshToken) {
+		this.refreshToken = refreshToken;
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.rays.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,10 +10,17 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.rays.common.LocalCache;
 import com.rays.dao.UserDAOInt;
 import com.rays.dto.UserDTO;
 
+/**
+ * Loads principal of JWT requests. Principals are cached by login id, an entry
+ * is removed when its user is changed through UserServiceImpl.
+ */
 @Service
 public class JWTUserDetailsService implements UserDetailsService {
 
@@ -24,9 +32,24 @@ public class JWTUserDetailsService implements UserDetailsService {
 	@Autowired
 	UserDAOInt userDao;
 
+	private final LocalCache<String, UserDetails> cache;
+
+	public JWTUserDetailsService(@Value("${auth.principal.size:5000}") int size,
+			@Value("${auth.principal.ttl:300000}") long ttl) {
+		cache = new LocalCache<String, UserDetails>(size, ttl);
+	}
+
+	/**
+	 * Principal is used after JWT token is verified, it carries no password.
+	 */
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
+		UserDetails details = cache.get(username);
+		if (details != null) {
+			return details;
+		}
+
 		UserDTO user = userDao.findByEmail("email",username,null);
 
 		if (user == null) {
@@ -34,7 +57,58 @@ public class JWTUserDetailsService implements UserDetailsService {
 			throw new UsernameNotFoundException("User not found with username : " + username);
 		}
 
-		return User.builder().username(user.getLoginId()).password(passwordEncoder().encode(user.getPassword()))
-				.roles("USER").build();
+		details = User.builder().username(user.getLoginId()).password("").roles("USER").build();
+		cache.put(username, details);
+		return details;
+	}
+
+	/**
+	 * Removes cached principals of a user, again after commit of current
+	 * transaction so a request running in between can not cache old values.
+	 *
+	 * @param user
+	 */
+	public void evict(UserDTO user) {
+		final String loginId = user.getLoginId();
+		final String email = user.getEmail();
+		evict(loginId, email);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					evict(loginId, email);
+				}
+			});
+		}
+	}
+
+	private void evict(String loginId, String email) {
+		if (loginId != null) {
+			cache.remove(loginId);
+		}
+		if (email != null) {
+			cache.remove(email);
+		}
+	}
+
+	/**
+	 * Removes all cached principals
+	 */
+	public void evictAll() {
+		cache.clear();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					cache.clear();
+				}
+			});
+		}
+	}
+
+	public LocalCache<String, UserDetails> getCache() {
+		return cache;
 	}
-}
\ No newline at end of file
+}
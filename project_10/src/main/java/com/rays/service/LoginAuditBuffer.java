@@ -0,0 +1,147 @@
+package com.rays.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.rays.dto.UserDTO;
+
+/**
+ * Records login bookkeeping of users without loading and merging user rows.
+ *
+ * Successful logins are kept in memory, one entry per user, and written in
+ * batches of narrow updates of LAST_LOGIN and UNSUCCESS_LOGIN. Failed logins
+ * are written at once, so failed attempt count in database is always current.
+ * A failure waits for a flush being written, so the reset of a login taken by
+ * the flush can not overwrite it.
+ */
+@Component
+public class LoginAuditBuffer {
+
+	private static Logger log = LoggerFactory.getLogger(LoginAuditBuffer.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * Failed flushes after which pending logins are dropped
+	 */
+	@Value("${login.audit.max.retries:3}")
+	private int maxRetries = 3;
+
+	/**
+	 * Last successful login time of users, not yet written
+	 */
+	private final Map<Long, Timestamp> pending = new ConcurrentHashMap<Long, Timestamp>();
+
+	private int failedFlushes = 0;
+
+	private String successSql = null;
+
+	private String failureSql = null;
+
+	/**
+	 * Builds updates with table and column names Hibernate uses for UserDTO
+	 */
+	@PostConstruct
+	public void init() {
+		AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+				.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(UserDTO.class);
+		String table = persister.getTableName();
+		String id = persister.getIdentifierColumnNames()[0];
+		String lastLogin = persister.getPropertyColumnNames("lastLogin")[0];
+		String attempts = persister.getPropertyColumnNames("unsucessfullLoginAttempt")[0];
+
+		successSql = "UPDATE " + table + " SET " + lastLogin + " = ?, " + attempts + " = 0 WHERE " + id + " = ?";
+		failureSql = "UPDATE " + table + " SET " + attempts + " = COALESCE(" + attempts + ", 0) + 1 WHERE " + id
+				+ " = ?";
+	}
+
+	/**
+	 * Records a successful login, later logins of same user replace it
+	 *
+	 * @param userId
+	 * @param time
+	 */
+	public void recordSuccess(Long userId, Timestamp time) {
+		pending.merge(userId, time, (a, b) -> a.after(b) ? a : b);
+	}
+
+	/**
+	 * Increments failed attempt count of user. A pending successful login of the
+	 * user is written first, so its reset does not overwrite this failure.
+	 *
+	 * @param userId
+	 */
+	public synchronized void recordFailure(Long userId) {
+		Timestamp time = pending.remove(userId);
+		if (time != null) {
+			jdbcTemplate.update(successSql, time, userId);
+		}
+		jdbcTemplate.update(failureSql, userId);
+	}
+
+	/**
+	 * Writes pending logins in one batch. A batch that fails is kept for
+	 * login.audit.max.retries flushes and then dropped.
+	 */
+	@Scheduled(fixedDelayString = "${login.audit.flush.ms:5000}")
+	@PreDestroy
+	public synchronized void flush() {
+		List<Object[]> batch = new ArrayList<Object[]>();
+		for (Long userId : pending.keySet()) {
+			Timestamp time = pending.remove(userId);
+			if (time != null) {
+				batch.add(new Object[] { time, userId });
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			jdbcTemplate.batchUpdate(successSql, batch);
+			failedFlushes = 0;
+		} catch (RuntimeException e) {
+			if (++failedFlushes >= maxRetries) {
+				log.error("Login audit of " + batch.size() + " users not written, dropped after " + failedFlushes
+						+ " attempts", e);
+				failedFlushes = 0;
+				return;
+			}
+			log.error("Login audit of " + batch.size() + " users not written, will retry", e);
+			for (Object[] row : batch) {
+				recordSuccess((Long) row[1], (Timestamp) row[0]);
+			}
+		}
+	}
+
+	/**
+	 * Number of pending logins
+	 *
+	 * @return
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+}
@@ -3,6 +3,8 @@ package com.rays.service;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,9 +41,40 @@ public class MarksheetServiceImpl extends BaseServiceImpl<MarksheetDTO, Markshee
 		return baseDao.findByUniqueKey("rollNo", rollNo, context);
 	}
 
-	@Override
-	public List<MarksheetDTO> getMeritList(UserContext context) {
+	@Transactional(readOnly = true)
+	public List<MarksheetDTO> getMeritList(Long collegeId, int top, boolean ties, UserContext context) {
 		System.out.println("getMeritList run in service");
-		return baseDao.getMeritList();
+		return baseDao.getMeritList(collegeId, top, ties, context);
+	}
+
+	@Override
+	public long add(MarksheetDTO dto, UserContext userContext) throws DuplicateRecordException {
+		dto.computeTotal();
+		return super.add(dto, userContext);
+	}
+
+	@Override
+	public void update(MarksheetDTO dto, UserContext userContext) throws DuplicateRecordException {
+		dto.computeTotal();
+		super.update(dto, userContext);
+	}
+
+	@Override
+	public List<Long> saveAll(List<MarksheetDTO> list, UserContext userContext) throws DuplicateRecordException {
+		for (MarksheetDTO dto : list) {
+			dto.computeTotal();
+		}
+		return super.saveAll(list, userContext);
+	}
+
+	/**
+	 * Fills total, percentage and college of marksheets saved before these
+	 * columns were added
+	 */
+	@EventListener(ContextRefreshedEvent.class)
+	public void updateTotals() {
+		int totals = baseDao.updateTotals();
+		int colleges = baseDao.updateCollegeIds(null);
+		log.info("Marksheet totals updated " + totals + ", colleges updated " + colleges);
 	}
 }
\ No newline at end of file
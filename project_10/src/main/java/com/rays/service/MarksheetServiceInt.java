@@ -30,9 +30,13 @@ public interface MarksheetServiceInt extends BaseServiceInt<MarksheetDTO> {
 	public MarksheetDTO findByRollNo(String rollNo, UserContext context);
 
 	/**
-	 * Gets merit list of students
+	 * Gets top students in order of total marks. Students having same total as
+	 * the last one are included when ties is true.
 	 * 
+	 * @param collegeId college of students, null for all colleges
+	 * @param top
+	 * @param ties
 	 * @return
 	 */
-	public List<MarksheetDTO> getMeritList(UserContext context);
+	public List<MarksheetDTO> getMeritList(Long collegeId, int top, boolean ties, UserContext context);
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.rays.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rays.dao.RoleDAOInt;
+import com.rays.dto.RoleDTO;
+
+/**
+ * Permissions of roles as bit masks, read from ST_ROLE. Checking a permission
+ * is a map lookup and a bit test.
+ *
+ * Permissions are read again when RoleServiceImpl changes a role, and every
+ * reload.ms for changes made by other instances. Inactive and unknown roles
+ * have no permission.
+ */
+@Service
+public class RolePermissionRegistry {
+
+	public static final int READ = 1;
+
+	public static final int WRITE = 2;
+
+	public static final int UPDATE = 4;
+
+	public static final int DELETE = 8;
+
+	private static Logger log = LoggerFactory.getLogger(RolePermissionRegistry.class);
+
+	@Autowired
+	private RoleDAOInt roleDao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Role id to permissions, replaced as a whole on reload
+	 */
+	private volatile Map<Long, Integer> permissions = Collections.emptyMap();
+
+	/**
+	 * True if role has all given permissions
+	 *
+	 * @param roleId
+	 * @param permission one or more of READ, WRITE, UPDATE, DELETE
+	 * @return
+	 */
+	public boolean isAllowed(Long roleId, int permission) {
+		if (roleId == null) {
+			return false;
+		}
+		Integer mask = permissions.get(roleId);
+		return mask != null && (mask & permission) == permission;
+	}
+
+	/**
+	 * Permissions of role
+	 *
+	 * @param roleId
+	 * @return
+	 */
+	public int getPermissions(Long roleId) {
+		Integer mask = (roleId == null) ? null : permissions.get(roleId);
+		return (mask == null) ? 0 : mask;
+	}
+
+	/**
+	 * Permission mask of role record
+	 *
+	 * @param dto
+	 * @return
+	 */
+	public static int toMask(RoleDTO dto) {
+		if (!RoleDTO.ACTIVE.equalsIgnoreCase(dto.getStatus())) {
+			return 0;
+		}
+		int mask = 0;
+		if (RoleDTO.YES.equalsIgnoreCase(dto.getCanRead())) {
+			mask |= READ;
+		}
+		if (RoleDTO.YES.equalsIgnoreCase(dto.getCanWrite())) {
+			mask |= WRITE;
+		}
+		if (RoleDTO.YES.equalsIgnoreCase(dto.getCanUpdate())) {
+			mask |= UPDATE;
+		}
+		if (RoleDTO.YES.equalsIgnoreCase(dto.getCanDelete())) {
+			mask |= DELETE;
+		}
+		return mask;
+	}
+
+	/**
+	 * Reads permissions of all roles
+	 */
+	@EventListener(ContextRefreshedEvent.class)
+	@Scheduled(initialDelayString = "${role.permission.reload.ms:60000}", fixedDelayString = "${role.permission.reload.ms:60000}")
+	public void reload() {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		template.setReadOnly(true);
+		List<RoleDTO> list = template.execute(status -> roleDao.runHQL("from RoleDTO", null));
+
+		Map<Long, Integer> loaded = new HashMap<Long, Integer>(list.size() * 2);
+		for (RoleDTO dto : list) {
+			loaded.put(dto.getId(), toMask(dto));
+		}
+		if (!loaded.equals(permissions)) {
+			log.info("Role permissions loaded " + loaded);
+		}
+		permissions = Collections.unmodifiableMap(loaded);
+	}
+
+	/**
+	 * Reads permissions after commit of current transaction, or now if there is
+	 * none
+	 */
+	public void reloadAfterCommit() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					reload();
+				}
+			});
+		} else {
+			reload();
+		}
+	}
+
+}
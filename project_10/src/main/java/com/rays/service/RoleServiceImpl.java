@@ -1,7 +1,11 @@
 package com.rays.service;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +30,43 @@ public class RoleServiceImpl extends BaseServiceImpl<RoleDTO, RoleDAOInt> implem
 
 	private static Logger log = LoggerFactory.getLogger(RoleServiceImpl.class);
 
+	@Autowired
+	RolePermissionRegistry rolePermissionRegistry;
+
+	@Override
+	public long add(RoleDTO dto, UserContext userContext) {
+		long pk = super.add(dto, userContext);
+		rolePermissionRegistry.reloadAfterCommit();
+		return pk;
+	}
+
+	@Override
+	public void update(RoleDTO dto, UserContext userContext) {
+		super.update(dto, userContext);
+		rolePermissionRegistry.reloadAfterCommit();
+	}
+
+	@Override
+	public RoleDTO delete(long id, UserContext userContext) {
+		RoleDTO dto = super.delete(id, userContext);
+		rolePermissionRegistry.reloadAfterCommit();
+		return dto;
+	}
+
+	@Override
+	public List<Long> saveAll(List<RoleDTO> list, UserContext userContext) {
+		List<Long> ids = super.saveAll(list, userContext);
+		rolePermissionRegistry.reloadAfterCommit();
+		return ids;
+	}
+
+	@Override
+	public int deleteAll(Collection<Long> ids, UserContext userContext) {
+		int count = super.deleteAll(ids, userContext);
+		rolePermissionRegistry.reloadAfterCommit();
+		return count;
+	}
+
 	@Transactional(readOnly = true)
 	public RoleDTO findByName(String name, UserContext userContext) {
 		return baseDao.findByUniqueKey("name", name, userContext);
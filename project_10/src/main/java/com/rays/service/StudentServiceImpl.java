@@ -1,12 +1,18 @@
 package com.rays.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.rays.common.BaseServiceImpl;
 import com.rays.common.UserContext;
+import com.rays.dao.MarksheetDAOInt;
 import com.rays.dao.StudentDAOInt;
 import com.rays.dto.StudentDTO;
 import com.rays.exception.DuplicateRecordException;
@@ -27,9 +33,35 @@ public class StudentServiceImpl extends BaseServiceImpl<StudentDTO, StudentDAOIn
 
 	private static Logger log = LoggerFactory.getLogger(StudentServiceImpl.class);
 
+	@Autowired
+	private MarksheetDAOInt marksheetDao;
+
 	@Transactional(readOnly = true)
 	public StudentDTO findByEmail(String email, UserContext context) {
 		return baseDao.findByUniqueKey("email", email, context);
 	}
 
+	/**
+	 * Marksheets keep college of student for merit list, it is updated with
+	 * student
+	 */
+	@Override
+	public void update(StudentDTO dto, UserContext userContext) throws DuplicateRecordException {
+		super.update(dto, userContext);
+		marksheetDao.updateCollegeIds(Collections.singletonList(dto.getId()));
+	}
+
+	@Override
+	public List<Long> saveAll(List<StudentDTO> list, UserContext userContext) throws DuplicateRecordException {
+		List<Long> updateIds = new ArrayList<Long>();
+		for (StudentDTO dto : list) {
+			if (dto.getId() != null && dto.getId() > 0) {
+				updateIds.add(dto.getId());
+			}
+		}
+		List<Long> ids = super.saveAll(list, userContext);
+		marksheetDao.updateCollegeIds(updateIds);
+		return ids;
+	}
+
 }
\ No newline at end of file
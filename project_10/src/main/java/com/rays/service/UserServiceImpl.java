@@ -1,20 +1,30 @@
 package com.rays.service;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.rays.common.BaseServiceImpl;
+import com.rays.common.LocalCache;
 import com.rays.common.UserContext;
+import com.rays.common.attachment.AttachmentServiceInt;
 import com.rays.common.mail.EmailDTO;
 import com.rays.common.mail.EmailServiceImpl;
+import com.rays.config.TokenRevocation;
 import com.rays.dao.UserDAOInt;
 import com.rays.dto.UserDTO;
 
@@ -30,6 +40,115 @@ public class UserServiceImpl extends BaseServiceImpl<UserDTO, UserDAOInt> implem
 	@Autowired
 	UserDAOInt userDAO;
 
+	@Autowired
+	JWTUserDetailsService jwtUserDetailsService;
+
+	@Autowired
+	LoginAuditBuffer loginAuditBuffer;
+
+	@Autowired
+	TokenRevocation tokenRevocation;
+
+	/**
+	 * Deletes profile pictures of deleted users, also from attachment cache
+	 */
+	@Autowired
+	AttachmentServiceInt attachmentService;
+
+	/**
+	 * Profile picture ids by user id, 0 for users without picture
+	 */
+	private final LocalCache<Long, Long> imageIds;
+
+	public UserServiceImpl(@Value("${user.image.cache.size:10000}") int size,
+			@Value("${user.image.cache.ttl:600000}") long ttl) {
+		imageIds = new LocalCache<Long, Long>(size, ttl);
+	}
+
+	@Override
+	public void update(UserDTO dto, UserContext userContext) {
+		super.update(dto, userContext);
+		jwtUserDetailsService.evict(dto);
+		evictImageId(dto.getId());
+	}
+
+	@Override
+	public UserDTO delete(long id, UserContext userContext) {
+		UserDTO dto = super.delete(id, userContext);
+		if (dto.getImageId() != null && dto.getImageId() > 0) {
+			attachmentService.deleteById(dto.getImageId(), userContext);
+		}
+		jwtUserDetailsService.evict(dto);
+		evictImageId(id);
+		return dto;
+	}
+
+	@Override
+	public List<Long> saveAll(List<UserDTO> list, UserContext userContext) {
+		List<Long> ids = super.saveAll(list, userContext);
+		jwtUserDetailsService.evictAll();
+		evictImageId(null);
+		return ids;
+	}
+
+	@Override
+	public int deleteAll(Collection<Long> ids, UserContext userContext) {
+		List<Long> pictureIds = userDAO.findImageIds(new LinkedHashSet<Long>(ids), userContext);
+		int count = super.deleteAll(ids, userContext);
+		attachmentService.deleteAll(pictureIds, userContext);
+		jwtUserDetailsService.evictAll();
+		evictImageId(null);
+		return count;
+	}
+
+	/**
+	 * Cached ids are read without a transaction, a database connection is used
+	 * only when id is not cached
+	 */
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public Long findImageId(long userId, UserContext userContext) {
+		Long imageId = imageIds.get(userId);
+		if (imageId == null) {
+			UserDTO dto = baseDao.findByPK(userId, userContext);
+			if (dto == null) {
+				return null;
+			}
+			imageId = (dto.getImageId() == null) ? 0L : dto.getImageId();
+			imageIds.put(userId, imageId);
+		}
+		return imageId;
+	}
+
+	/**
+	 * Removes cached picture id of user, or all when id is null, now and after
+	 * commit
+	 */
+	private void evictImageId(final Long userId) {
+		removeImageId(userId);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					removeImageId(userId);
+				}
+			});
+		}
+	}
+
+	private void removeImageId(Long userId) {
+		if (userId == null) {
+			imageIds.clear();
+		} else {
+			imageIds.remove(userId);
+		}
+	}
+
+	public LocalCache<Long, Long> getImageIdCache() {
+		return imageIds;
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public UserDTO findByLoginId(String login, UserContext userContext) {
@@ -40,15 +159,13 @@ public class UserServiceImpl extends BaseServiceImpl<UserDTO, UserDAOInt> implem
 	public UserDTO authenticate(String loginId, String password) {
 		UserDTO dto = findByLoginId(loginId, null);
 		if (dto != null) {
-			UserContext userContext = new UserContext(dto);
+			// Login time and failed attempts are written as narrow updates, user
+			// record is not merged
 			if (password.equals(dto.getPassword())) {
-				dto.setLastLogin(new Timestamp(new Date().getTime()));
-				dto.setUnsucessfullLoginAttempt(0);
-				update(dto, userContext);
+				loginAuditBuffer.recordSuccess(dto.getId(), new Timestamp(new Date().getTime()));
 				return dto;
 			} else {
-				dto.setUnsucessfullLoginAttempt(1 + dto.getUnsucessfullLoginAttempt());
-				update(dto, userContext);
+				loginAuditBuffer.recordFailure(dto.getId());
 			}
 		}
 		return null;
@@ -61,6 +178,9 @@ public class UserServiceImpl extends BaseServiceImpl<UserDTO, UserDAOInt> implem
 			dto.setPassword(newPassword);
 			update(dto, userContext);
 
+			// tokens issued before the change are not accepted any more
+			tokenRevocation.revokeUser(dto.getId());
+
 			EmailDTO emailDTO = new EmailDTO();
 			emailDTO.addTo(dto.getLoginId());
 			HashMap<String, String> params = new HashMap<>();
@@ -30,6 +30,14 @@ public interface UserServiceInt extends BaseServiceInt<UserDTO> {
 	public UserDTO forgotPassword(String loginId);
 
 	public UserDTO register(UserDTO dto);
+
+	/**
+	 * Finds id of profile picture of user, cached.
+	 * 
+	 * @param userId
+	 * @return 0 if user has no picture, null if user does not exist
+	 */
+	public Long findImageId(long userId, UserContext userContext);
 	
 	/*
 	 * public boolean verifyOtp(String loginId, String otp);
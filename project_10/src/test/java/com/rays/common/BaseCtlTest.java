@@ -0,0 +1,96 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.validation.Validation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rays.ctl.RoleCtl;
+import com.rays.dto.RoleDTO;
+import com.rays.dto.UserDTO;
+import com.rays.form.RoleForm;
+import com.rays.service.RolePermissionRegistry;
+import com.rays.service.RoleServiceInt;
+
+public class BaseCtlTest {
+
+	private RoleCtl ctl;
+
+	private RoleServiceInt service;
+
+	@Before
+	public void setUp() {
+		service = mock(RoleServiceInt.class);
+		RolePermissionRegistry registry = mock(RolePermissionRegistry.class);
+		doReturn(true).when(registry).isAllowed(anyLong(), anyInt());
+
+		UserDTO user = new UserDTO();
+		user.setRoleId(1L);
+		ctl = new RoleCtl();
+		ReflectionTestUtils.setField(ctl, "baseService", service);
+		ReflectionTestUtils.setField(ctl, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+		ReflectionTestUtils.setField(ctl, "rolePermissionRegistry", registry);
+		ReflectionTestUtils.setField(ctl, "userContext", new UserContext(user));
+	}
+
+	private RoleForm form(Long id, String name) {
+		RoleForm form = new RoleForm();
+		form.setId(id);
+		form.setName(name);
+		form.setDescription("d");
+		return form;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, String> inputErrors(ORSResponse res) {
+		return (Map<String, String>) res.getResult().get(ORSResponse.INPUT_ERROR);
+	}
+
+	@Test
+	public void saveAllRejectsValuesUsedByOtherRecords() {
+		RoleDTO exist = new RoleDTO();
+		exist.setId(7L);
+		exist.setName("ADMIN");
+		doReturn(Arrays.asList(exist)).when(service).findByUniqueKeys(eq("name"), any(), any());
+
+		ORSResponse res = ctl.saveAll(Arrays.asList(form(null, "admin"), form(null, "Clerk"), form(null, "clerk")));
+
+		assertFalse(res.isSuccess());
+		assertEquals(2, inputErrors(res).size());
+		assertTrue(inputErrors(res).containsKey("0.name"));
+		assertTrue(inputErrors(res).containsKey("2.name"));
+		verify(service, never()).saveAll(anyList(), any());
+	}
+
+	@Test
+	public void saveAllKeepsValueOfUpdatedRecord() {
+		RoleDTO exist = new RoleDTO();
+		exist.setId(7L);
+		exist.setName("Admin");
+		doReturn(Arrays.asList(exist)).when(service).findByUniqueKeys(eq("name"), any(), any());
+		doReturn(Arrays.asList(7L, 8L)).when(service).saveAll(anyList(), any());
+
+		ORSResponse res = ctl.saveAll(Arrays.asList(form(7L, "Admin"), form(null, "Clerk")));
+
+		assertTrue(res.isSuccess());
+		verify(service).findByUniqueKeys(eq("name"), any(), any());
+	}
+
+}
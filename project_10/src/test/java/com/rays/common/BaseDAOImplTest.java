@@ -0,0 +1,122 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.query.Query;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.rays.dao.RoleDAOImpl;
+import com.rays.dto.RoleDTO;
+
+/**
+ * Queries of keyset searches. Queries are created, not run, so no database is
+ * needed.
+ */
+public class BaseDAOImplTest {
+
+	private static EntityManagerFactory factory;
+
+	private EntityManager entityManager;
+
+	private RoleDAOImpl dao;
+
+	@BeforeClass
+	public static void createFactory() {
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+		properties.setProperty("hibernate.temp.use_jdbc_metadata_defaults", "false");
+
+		LocalContainerEntityManagerFactoryBean bean = new LocalContainerEntityManagerFactoryBean();
+		bean.setPackagesToScan("com.rays.dto");
+		bean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		bean.setJpaProperties(properties);
+		bean.afterPropertiesSet();
+		factory = bean.getObject();
+	}
+
+	@AfterClass
+	public static void closeFactory() {
+		factory.close();
+	}
+
+	@Before
+	public void setUp() {
+		entityManager = factory.createEntityManager();
+		dao = new RoleDAOImpl();
+		dao.setEntityManager(entityManager);
+		dao.initCountCache();
+	}
+
+	private Query<?> query(RoleDTO dto, SearchCursor after) {
+		return dao.createCriteria(dto, after, null).unwrap(Query.class);
+	}
+
+	@Test
+	public void seeksPastAscendingKeys() {
+		RoleDTO dto = new RoleDTO();
+		RoleDTO last = new RoleDTO();
+		last.setName("Admin");
+		last.setId(5L);
+
+		Query<?> query = query(dto, dao.getCursor(dto, last));
+		String jpql = query.getQueryString();
+
+		// p0 and p1 are status and organization, seek clause is built from last key
+		assertTrue(jpql, jpql.contains("( generatedAlias0.name>:p3 ) or ( ( generatedAlias0.name=:p4 )"
+				+ " and ( generatedAlias0.id>:p2 ) )"));
+		assertTrue(jpql, jpql.endsWith("order by generatedAlias0.name asc, generatedAlias0.id asc"));
+		assertEquals(5L, query.getParameterValue("p2"));
+		assertEquals("Admin", query.getParameterValue("p3"));
+		assertEquals("Admin", query.getParameterValue("p4"));
+	}
+
+	@Test
+	public void seeksPastNullOfDescendingKey() {
+		RoleDTO dto = new RoleDTO() {
+			@Override
+			public LinkedHashMap<String, String> orderBY() {
+				LinkedHashMap<String, String> map = new LinkedHashMap<String, String>();
+				map.put("name", "desc");
+				return map;
+			}
+		};
+		RoleDTO last = new RoleDTO();
+		last.setId(5L);
+
+		String jpql = query(dto, dao.getCursor(dto, last)).getQueryString();
+
+		// Nulls come last in descending order, only rows with null name follow
+		assertTrue(jpql, jpql.contains("( generatedAlias0.name is null ) and ( generatedAlias0.id>:p2 )"));
+		assertTrue(jpql, !jpql.contains("generatedAlias0.name is not null"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsCursorOfOtherOrder() {
+		query(new RoleDTO(), SearchCursor.of(new Object[] { 1L }));
+	}
+
+	@Test
+	public void reusesQueryOfSameShape() {
+		RoleDTO dto = new RoleDTO();
+		dto.setName("A");
+		query(dto, null);
+		dto.setName("B");
+		Query<?> query = query(dto, null);
+
+		assertEquals(1, dao.getTemplateCache().getHitCount());
+		assertEquals("B%", query.getParameterValue("p0"));
+	}
+
+}
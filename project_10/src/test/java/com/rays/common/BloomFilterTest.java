@@ -0,0 +1,44 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+	@Test
+	public void containsAddedValues() {
+		BloomFilter filter = new BloomFilter(1 << 16, 5);
+		for (int i = 0; i < 1000; i++) {
+			filter.add("token-" + i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(filter.mightContain("token-" + i));
+		}
+	}
+
+	@Test
+	public void emptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(1024, 3);
+		assertFalse(filter.mightContain("token"));
+		assertFalse(filter.mightContain(""));
+	}
+
+	@Test
+	public void fewFalsePositives() {
+		BloomFilter filter = new BloomFilter(1 << 16, 5);
+		for (int i = 0; i < 1000; i++) {
+			filter.add("token-" + i);
+		}
+		int matched = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (filter.mightContain("other-" + i)) {
+				matched++;
+			}
+		}
+		// about 0.0001 expected at this load
+		assertTrue("false positives " + matched, matched < 50);
+	}
+
+}
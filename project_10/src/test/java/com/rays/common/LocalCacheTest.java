@@ -0,0 +1,61 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class LocalCacheTest {
+
+	@Test
+	public void removesLeastRecentlyUsedWhenFull() {
+		LocalCache<String, Integer> cache = new LocalCache<String, Integer>(2, 0);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.get("a");
+		cache.put("c", 3);
+
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(Integer.valueOf(3), cache.get("c"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void expiredEntryIsAbsent() {
+		LocalCache<String, Integer> cache = new LocalCache<String, Integer>(10, 0);
+		cache.put("old", 1, System.currentTimeMillis() - 1);
+		cache.put("new", 2, System.currentTimeMillis() + 60000);
+		cache.put("forever", 3, 0);
+
+		assertNull(cache.get("old"));
+		assertEquals(Integer.valueOf(2), cache.get("new"));
+		assertEquals(Integer.valueOf(3), cache.get("forever"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		LocalCache<String, Integer> cache = new LocalCache<String, Integer>(10, 60000);
+		cache.put("a", 1);
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void removesMatchingKeys() {
+		LocalCache<String, Integer> cache = new LocalCache<String, Integer>(10, 0);
+		cache.put("user:1", 1);
+		cache.put("user:2", 2);
+		cache.put("role:1", 3);
+		cache.removeIf(k -> k.startsWith("user:"));
+
+		assertEquals(1, cache.size());
+		assertEquals(Integer.valueOf(3), cache.get("role:1"));
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+public class SearchCursorTest {
+
+	@Test
+	public void decodesEncodedValues() {
+		Timestamp time = new Timestamp(1500000000000L);
+		SearchCursor cursor = SearchCursor
+				.decode(SearchCursor.of(new Object[] { "a&b=~ c", null, time, 42L, 7, true }).encode());
+
+		assertEquals(6, cursor.size());
+		assertEquals("a&b=~ c", cursor.getValue(0, String.class));
+		assertNull(cursor.getValue(1, String.class));
+		assertEquals(time, cursor.getValue(2, Timestamp.class));
+		assertEquals(42L, cursor.getValue(3, Long.class));
+		assertEquals(7, cursor.getValue(4, int.class));
+		assertEquals(Boolean.TRUE, cursor.getValue(5, Boolean.class));
+	}
+
+	@Test
+	public void encodedCursorIsUrlSafe() {
+		String text = SearchCursor.of(new Object[] { "?/+= ", 1L }).encode();
+		assertFalse(text.matches(".*[^A-Za-z0-9_-].*"));
+	}
+
+	@Test
+	public void keepsEmptyText() {
+		SearchCursor cursor = SearchCursor.decode(SearchCursor.of(new Object[] { "", 1L }).encode());
+		assertEquals("", cursor.getValue(0, String.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMalformedCursor() {
+		SearchCursor.decode("not a cursor!");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnsupportedType() {
+		SearchCursor.of(new Object[] { "x" }).getValue(0, StringBuilder.class);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.rays.common;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.rays.dao.RoleDAOImpl;
+import com.rays.dto.RoleDTO;
+
+/**
+ * Time to create the query of a role search: building and rendering the
+ * criteria on every search against BaseDAOImpl.createCriteria, which reuses
+ * the JPQL of a known SearchShape. No database is needed, queries are
+ * created but not run.
+ *
+ * Run with main() from test classpath, for example
+ * mvn test-compile exec:java -Dexec.mainClass=com.rays.common.SearchQueryBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+	private EntityManagerFactory factory;
+
+	private EntityManager entityManager;
+
+	private RoleDAOImpl dao;
+
+	private RoleDTO dto;
+
+	@Setup
+	public void setup() {
+		// getOrderByClause() prints, keep it out of the measurement
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		}));
+
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+		properties.setProperty("hibernate.temp.use_jdbc_metadata_defaults", "false");
+
+		LocalContainerEntityManagerFactoryBean bean = new LocalContainerEntityManagerFactoryBean();
+		bean.setPackagesToScan("com.rays.dto");
+		bean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		bean.setJpaProperties(properties);
+		bean.afterPropertiesSet();
+		factory = bean.getObject();
+		entityManager = factory.createEntityManager();
+
+		dao = new RoleDAOImpl();
+		dao.setEntityManager(entityManager);
+		dao.initCountCache();
+
+		dto = new RoleDTO();
+		dto.setName("Adm");
+		dto.setStatus("Active");
+	}
+
+	@TearDown
+	public void tearDown() {
+		entityManager.close();
+		factory.close();
+	}
+
+	/**
+	 * Query built the way createCriteria did before search shapes
+	 */
+	@Benchmark
+	public TypedQuery<RoleDTO> criteria() {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<RoleDTO> cq = builder.createQuery(RoleDTO.class);
+		Root<RoleDTO> qRoot = cq.from(RoleDTO.class);
+		cq.select(qRoot);
+		List<Predicate> whereClause = dao.createWhereClause(dto, builder, qRoot);
+		cq.where(whereClause.toArray(new Predicate[whereClause.size()]));
+		List<Order> orderBys = dao.getOrderByClause(dto, builder, qRoot);
+		cq.orderBy(orderBys.toArray(new Order[orderBys.size()]));
+		return dao.cacheable(entityManager.createQuery(cq));
+	}
+
+	@Benchmark
+	public TypedQuery<RoleDTO> shape() {
+		return dao.createCriteria(dto, null);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SearchQueryBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.rays.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rays.dto.RoleDTO;
+
+public class SearchShapeTest {
+
+	private Metamodel metamodel;
+
+	@Before
+	public void setUp() {
+		Attribute<?, ?> attribute = mock(Attribute.class);
+		doReturn(String.class).when(attribute).getJavaType();
+		ManagedType<?> type = mock(ManagedType.class);
+		doReturn(attribute).when(type).getAttribute(anyString());
+		metamodel = mock(Metamodel.class);
+		doReturn(type).when(metamodel).managedType(RoleDTO.class);
+	}
+
+	private SearchShape record(String name, String status) {
+		SearchShape shape = new SearchShape(RoleDTO.class, metamodel);
+		CriteriaBuilder builder = shape.getBuilder();
+		Root<RoleDTO> root = shape.getRoot();
+		shape.append("where", new Object[] { builder.like(root.get("name"), name),
+				builder.equal(root.get("status"), status) });
+		return shape;
+	}
+
+	@Test
+	public void sameConditionsHaveSameShape() {
+		SearchShape a = record("Adm%", "Active");
+		SearchShape b = record("Stu%", "Inactive");
+
+		assertEquals(a.getShape(), b.getShape());
+		assertEquals(Arrays.asList("Adm%", "Active"), a.getValues());
+		assertEquals(Arrays.asList("Stu%", "Inactive"), b.getValues());
+	}
+
+	@Test
+	public void differentConditionsHaveDifferentShape() {
+		SearchShape a = record("Adm%", "Active");
+		SearchShape b = new SearchShape(RoleDTO.class, metamodel);
+		Root<RoleDTO> root = b.getRoot();
+		b.append("where", new Object[] { b.getBuilder().equal(root.get("name"), "Adm%") });
+
+		assertNotEquals(a.getShape(), b.getShape());
+	}
+
+	@Test
+	public void pathKnowsAttributeType() {
+		SearchShape shape = new SearchShape(RoleDTO.class, metamodel);
+		Path<Object> path = shape.<RoleDTO>getRoot().get("name");
+
+		assertEquals(String.class, path.getJavaType());
+		assertEquals(RoleDTO.class, shape.getRoot().getJavaType());
+	}
+
+}
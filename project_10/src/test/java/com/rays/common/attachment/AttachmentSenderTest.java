@@ -0,0 +1,77 @@
+package com.rays.common.attachment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class AttachmentSenderTest {
+
+	@Test
+	public void parsesClosedRange() {
+		assertArrayEquals(new long[] { 0, 99 }, AttachmentSender.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] { 900, 999 }, AttachmentSender.parseRange("bytes=900-5000", 1000));
+	}
+
+	@Test
+	public void parsesOpenEndedRange() {
+		assertArrayEquals(new long[] { 500, 999 }, AttachmentSender.parseRange("bytes=500-", 1000));
+	}
+
+	@Test
+	public void parsesSuffixRange() {
+		assertArrayEquals(new long[] { 900, 999 }, AttachmentSender.parseRange("bytes=-100", 1000));
+		assertArrayEquals(new long[] { 0, 999 }, AttachmentSender.parseRange("bytes=-5000", 1000));
+	}
+
+	@Test
+	public void rejectsUnsatisfiableRange() {
+		assertNull(AttachmentSender.parseRange("bytes=1000-", 1000));
+		assertNull(AttachmentSender.parseRange("bytes=2000-3000", 1000));
+		assertNull(AttachmentSender.parseRange("bytes=-0", 1000));
+		assertNull(AttachmentSender.parseRange("bytes=0-", 0));
+	}
+
+	@Test
+	public void sendsWholeDataForMultipleOrInvalidRanges() {
+		assertArrayEquals(new long[0], AttachmentSender.parseRange("bytes=0-9,20-29", 1000));
+		assertArrayEquals(new long[0], AttachmentSender.parseRange("bytes=9-0", 1000));
+		assertArrayEquals(new long[0], AttachmentSender.parseRange("bytes=a-b", 1000));
+		assertArrayEquals(new long[0], AttachmentSender.parseRange("items=0-9", 1000));
+	}
+
+	@Test
+	public void acceptsNamedCoding() {
+		assertTrue(accepts("gzip, deflate, br"));
+		assertTrue(accepts("GZIP;q=0.5"));
+		assertFalse(accepts("deflate, br"));
+		assertFalse(accepts(null));
+	}
+
+	@Test
+	public void refusesCodingOfZeroQuality() {
+		assertFalse(accepts("gzip;q=0"));
+		assertFalse(accepts("gzip; q=0.0, deflate"));
+		assertFalse(accepts("gzip;q=x"));
+	}
+
+	@Test
+	public void acceptsAnyCodingUnlessNamed() {
+		assertTrue(accepts("*"));
+		assertFalse(accepts("*;q=0"));
+		assertFalse(accepts("*, gzip;q=0"));
+		assertTrue(accepts("*;q=0, gzip"));
+	}
+
+	private static boolean accepts(String header) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (header != null) {
+			request.addHeader("Accept-Encoding", header);
+		}
+		return AttachmentSender.accepts(request, AttachmentStore.GZIP);
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.rays.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rays.common.UserContext;
+import com.rays.dto.UserDTO;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Time to get the user context of an access token: verifying its signature
+ * on every request against JWTUtil, which verifies a token once and reads its
+ * claims from cache afterwards.
+ *
+ * Run with main() from test classpath, for example
+ * mvn test-compile exec:java -Dexec.mainClass=com.rays.config.JWTUtilBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTUtilBenchmark {
+
+	private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+
+	private JWTUtil jwtUtil;
+
+	private String token;
+
+	@Setup
+	public void setup() {
+		jwtUtil = new JWTUtil();
+		ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+		ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3600000L);
+		jwtUtil.initCache();
+
+		UserDTO dto = new UserDTO();
+		dto.setId(1L);
+		dto.setLoginId("admin@sunilos.com");
+		dto.setFirstName("Admin");
+		dto.setLastName("User");
+		dto.setRoleId(1L);
+		dto.setRoleName("Admin");
+		dto.setOrgId(1L);
+		dto.setOrgName("root");
+		token = jwtUtil.generateToken(dto, jwtUtil.newSessionId());
+	}
+
+	/**
+	 * Signature verified on every request
+	 */
+	@Benchmark
+	public UserContext verify() {
+		Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+		return jwtUtil.getUserContext(claims);
+	}
+
+	@Benchmark
+	public UserContext cached() {
+		return jwtUtil.getUserContext(jwtUtil.getClaims(token));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JWTUtilBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
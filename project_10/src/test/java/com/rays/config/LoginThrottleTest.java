@@ -0,0 +1,63 @@
+package com.rays.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LoginThrottleTest {
+
+	@Test
+	public void rejectsWhenEmptyAndRefills() throws InterruptedException {
+		LoginThrottle throttle = new LoginThrottle(100, 60000, 2, 100, 1, 60000, 100);
+
+		assertTrue(throttle.tryLogin("10.0.0.1", "admin"));
+		assertTrue(throttle.tryLogin("10.0.0.1", "ADMIN"));
+		assertFalse(throttle.tryLogin("10.0.0.1", "admin"));
+
+		Thread.sleep(250);
+		assertTrue(throttle.tryLogin("10.0.0.1", "admin"));
+	}
+
+	@Test
+	public void limitsClientAcrossLoginIds() {
+		LoginThrottle throttle = new LoginThrottle(2, 60000, 5, 60000, 1, 60000, 100);
+
+		assertTrue(throttle.tryLogin("10.0.0.1", "a"));
+		assertTrue(throttle.tryLogin("10.0.0.1", "b"));
+		assertFalse(throttle.tryLogin("10.0.0.1", "c"));
+		assertTrue(throttle.tryLogin("10.0.0.2", "c"));
+	}
+
+	@Test
+	public void newKeysAreLimitedWhenFull() {
+		LoginThrottle throttle = new LoginThrottle(100, 60000, 1, 60000, 1, 60000, 2);
+
+		assertTrue(throttle.tryLogin("10.0.0.1", "a"));
+		assertTrue(throttle.tryLogin("10.0.0.1", "b"));
+		assertEquals(3, throttle.size());
+
+		// Login id buckets are full, new login id is still limited
+		assertTrue(throttle.tryLogin("10.0.0.1", "c"));
+		assertFalse(throttle.tryLogin("10.0.0.1", "c"));
+		assertFalse(throttle.tryLogin("10.0.0.1", "C"));
+		assertEquals(3, throttle.size());
+
+		// Known login ids keep their own buckets
+		assertFalse(throttle.tryLogin("10.0.0.1", "a"));
+	}
+
+	@Test
+	public void newClientsAreLimitedWhenFull() {
+		LoginThrottle throttle = new LoginThrottle(1, 60000, 100, 60000, 1, 60000, 1);
+
+		assertTrue(throttle.tryLogin("10.0.0.1", "a"));
+
+		// IP buckets are full, new client is limited in a shared bucket
+		assertTrue(throttle.tryLogin("10.0.0.2", "a"));
+		assertFalse(throttle.tryLogin("10.0.0.2", "a"));
+		assertEquals(2, throttle.size());
+	}
+
+}